@@ -0,0 +1,73 @@
+// Queue on a circular array whose length is a power of two. enqueue is O(1) amortized (the
+// array doubles when full, unwrapping the ring), dequeue and first are O(1), and nothing is
+// allocated per element, unlike LinkedQueue's node per enqueue.
+public class ArrayQueue<E> implements Queue<E>
+{
+    private Object[] data;
+    private int head = 0;
+    private int size = 0;
+
+    public ArrayQueue() { this(16); }
+
+    public ArrayQueue(int capacity) {
+        data = new Object[Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    public void enqueue(E e) {
+        if (size == data.length) grow();
+        data[(head + size) & (data.length - 1)] = e;
+        size++;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public E first() {
+        if (size == 0) return null;
+        return (E) data[head];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public E dequeue() {
+        if (size == 0) return null;
+        E answer = (E) data[head];
+        data[head] = null;
+        head = (head + 1) & (data.length - 1);
+        size--;
+        return answer;
+    }
+
+    private void grow() {
+        int n = data.length;
+        Object[] bigger = new Object[2 * n];
+        System.arraycopy(data, head, bigger, 0, n - head);
+        System.arraycopy(data, 0, bigger, n - head, head);
+        data = bigger;
+        head = 0;
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder("(");
+        for (int i = 0; i < size; i++) {
+            if (i > 0)
+                sb.append(", ");
+            sb.append(data[(head + i) & (data.length - 1)]);
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+    public static void main(String[] args)
+    {
+        ArrayQueue<Integer> queue = new ArrayQueue<>(4);
+        for (int i = 0; i < 6; i++)
+            queue.enqueue(i);
+        queue.dequeue();
+        queue.dequeue();
+        for (int i = 6; i < 12; i++)
+            queue.enqueue(i);
+        System.out.println(queue + ", first " + queue.first() + ", size " + queue.size());
+    }
+}
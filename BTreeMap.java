@@ -0,0 +1,423 @@
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+interface SortedMap<K,V> extends Map<K,V>
+{
+    Entry<K,V> firstEntry();
+    Entry<K,V> lastEntry();
+    Entry<K,V> ceilingEntry(K key);     // least key >= key
+    Entry<K,V> floorEntry(K key);       // greatest key <= key
+    Entry<K,V> higherEntry(K key);      // least key > key
+    Entry<K,V> lowerEntry(K key);       // greatest key < key
+    Iterable<Entry<K,V>> subMap(K fromKey, K toKey);   // fromKey inclusive, toKey exclusive
+}
+
+// B+tree: internal nodes hold up to MAX_KEYS separators in a flat array, leaves hold keys
+// and their entries side by side and are linked both ways, so point operations binary-search
+// a few wide nodes and range scans walk the leaves returning the stored entries.
+// Keys are ordered by a Comparator (DefaultComparator by default), as in AbstractPriorityQueue.
+// Iterators are not fail-fast; don't modify the map while one is in use.
+public class BTreeMap<K, V> extends AbstractMap<K, V> implements SortedMap<K, V>
+{
+    private static final int MAX_KEYS = 32;     // a node splits when it would hold more
+    private static final int MIN_KEYS = MAX_KEYS / 2;
+
+    private static abstract class Node {
+        int count;
+    }
+
+    private static final class Leaf extends Node {
+        final Object[] keys = new Object[MAX_KEYS + 1];       // one spare slot before a split
+        final Object[] entries = new Object[MAX_KEYS + 1];
+        Leaf prev, next;
+    }
+
+    // children[i] holds keys below keys[i], children[i + 1] keys at or above it
+    private static final class Internal extends Node {
+        final Object[] keys = new Object[MAX_KEYS + 1];
+        final Node[] children = new Node[MAX_KEYS + 2];
+    }
+
+    private final Comparator<K> comp;
+    private final Leaf head = new Leaf();   // leftmost leaf; merges keep the left node, so it never changes
+    private Node root = head;
+    private int size = 0;
+
+    // results passed up from insert and delete
+    private Object splitKey;
+    private Node splitNode;
+    private V previous;
+
+    public BTreeMap() { this(new DefaultComparator<K>()); }
+
+    public BTreeMap(Comparator<K> comp) { this.comp = comp; }
+
+    public int size() { return size; }
+
+    private void checkKey(K key) throws IllegalArgumentException {
+        try {
+            comp.compare(key, key);
+        }
+        catch (ClassCastException | NullPointerException e) {
+            throw new IllegalArgumentException("Incompatible key");
+        }
+    }
+
+    // Index of key in keys[0..count), or -(insertion point + 1)
+    @SuppressWarnings({"unchecked"})
+    private int search(Object[] keys, int count, K key) {
+        int lo = 0, hi = count - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int c = comp.compare((K) keys[mid], key);
+            if (c < 0) lo = mid + 1;
+            else if (c > 0) hi = mid - 1;
+            else return mid;
+        }
+        return -(lo + 1);
+    }
+
+    private int childIndex(Internal node, K key) {
+        int i = search(node.keys, node.count, key);
+        return i >= 0 ? i + 1 : -(i + 1);
+    }
+
+    private Leaf leafFor(K key) {
+        Node n = root;
+        while (n instanceof Internal) {
+            Internal in = (Internal) n;
+            n = in.children[childIndex(in, key)];
+        }
+        return (Leaf) n;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private MapEntry<K, V> entry(Leaf leaf, int i) { return (MapEntry<K, V>) leaf.entries[i]; }
+
+    // Entry at index i of leaf, stepping into the neighbouring leaf when i is just outside it
+    private Entry<K, V> at(Leaf leaf, int i) {
+        if (i < 0) {
+            leaf = leaf.prev;
+            if (leaf == null) return null;
+            i = leaf.count - 1;
+        }
+        else if (i >= leaf.count) {
+            leaf = leaf.next;
+            if (leaf == null) return null;
+            i = 0;
+        }
+        return entry(leaf, i);
+    }
+
+    public V get(K key) {
+        checkKey(key);
+        Leaf leaf = leafFor(key);
+        int i = search(leaf.keys, leaf.count, key);
+        return i >= 0 ? entry(leaf, i).getValue() : null;
+    }
+
+    //-----------------------INSERT----------------------
+
+    public V put(K key, V value) {
+        checkKey(key);
+        if (insert(root, key, value)) {
+            Internal r = new Internal();
+            r.keys[0] = splitKey;
+            r.children[0] = root;
+            r.children[1] = splitNode;
+            r.count = 1;
+            root = r;
+        }
+        splitKey = null;
+        splitNode = null;
+        V answer = previous;
+        previous = null;
+        return answer;
+    }
+
+    // Returns true if node split; splitKey and splitNode then hold the separator and new right node
+    private boolean insert(Node node, K key, V value) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int i = search(leaf.keys, leaf.count, key);
+            if (i >= 0) {
+                previous = entry(leaf, i).setValue(value);
+                return false;
+            }
+            i = -(i + 1);
+            System.arraycopy(leaf.keys, i, leaf.keys, i + 1, leaf.count - i);
+            System.arraycopy(leaf.entries, i, leaf.entries, i + 1, leaf.count - i);
+            leaf.keys[i] = key;
+            leaf.entries[i] = new MapEntry<>(key, value);
+            leaf.count++;
+            size++;
+            if (leaf.count <= MAX_KEYS) return false;
+            splitLeaf(leaf);
+            return true;
+        }
+        Internal in = (Internal) node;
+        int c = childIndex(in, key);
+        if (!insert(in.children[c], key, value)) return false;
+        System.arraycopy(in.keys, c, in.keys, c + 1, in.count - c);
+        System.arraycopy(in.children, c + 1, in.children, c + 2, in.count - c);
+        in.keys[c] = splitKey;
+        in.children[c + 1] = splitNode;
+        in.count++;
+        if (in.count <= MAX_KEYS) return false;
+        splitInternal(in);
+        return true;
+    }
+
+    private void splitLeaf(Leaf left) {
+        Leaf right = new Leaf();
+        int mid = left.count / 2;
+        right.count = left.count - mid;
+        System.arraycopy(left.keys, mid, right.keys, 0, right.count);
+        System.arraycopy(left.entries, mid, right.entries, 0, right.count);
+        clear(left.keys, mid, left.count);
+        clear(left.entries, mid, left.count);
+        left.count = mid;
+        right.next = left.next;
+        right.prev = left;
+        if (left.next != null) left.next.prev = right;
+        left.next = right;
+        splitKey = right.keys[0];
+        splitNode = right;
+    }
+
+    // The middle separator moves up instead of being copied
+    private void splitInternal(Internal left) {
+        Internal right = new Internal();
+        int mid = left.count / 2;
+        right.count = left.count - mid - 1;
+        System.arraycopy(left.keys, mid + 1, right.keys, 0, right.count);
+        System.arraycopy(left.children, mid + 1, right.children, 0, right.count + 1);
+        splitKey = left.keys[mid];
+        splitNode = right;
+        clear(left.keys, mid, left.count);
+        clear(left.children, mid + 1, left.count + 1);
+        left.count = mid;
+    }
+
+    private static void clear(Object[] a, int from, int to) {
+        for (int i = from; i < to; i++) a[i] = null;
+    }
+
+    //-----------------------DELETE----------------------
+
+    public V remove(K key) {
+        checkKey(key);
+        if (!delete(root, key)) return null;
+        if (root instanceof Internal && root.count == 0)
+            root = ((Internal) root).children[0];
+        V answer = previous;
+        previous = null;
+        return answer;
+    }
+
+    // Returns true if key was found; the caller rebalances node if it fell below MIN_KEYS
+    private boolean delete(Node node, K key) {
+        if (node instanceof Leaf) {
+            Leaf leaf = (Leaf) node;
+            int i = search(leaf.keys, leaf.count, key);
+            if (i < 0) return false;
+            previous = entry(leaf, i).getValue();
+            System.arraycopy(leaf.keys, i + 1, leaf.keys, i, leaf.count - i - 1);
+            System.arraycopy(leaf.entries, i + 1, leaf.entries, i, leaf.count - i - 1);
+            leaf.count--;
+            leaf.keys[leaf.count] = null;
+            leaf.entries[leaf.count] = null;
+            size--;
+            return true;
+        }
+        Internal in = (Internal) node;
+        int c = childIndex(in, key);
+        if (!delete(in.children[c], key)) return false;
+        if (in.children[c].count < MIN_KEYS)
+            rebalance(in, c);
+        return true;
+    }
+
+    // Refills child c from a sibling that can spare a key, otherwise merges it with one
+    private void rebalance(Internal parent, int c) {
+        if (c > 0 && parent.children[c - 1].count > MIN_KEYS)
+            borrowFromLeft(parent, c);
+        else if (c < parent.count && parent.children[c + 1].count > MIN_KEYS)
+            borrowFromRight(parent, c);
+        else if (c > 0)
+            merge(parent, c - 1);
+        else
+            merge(parent, c);
+    }
+
+    private void borrowFromLeft(Internal parent, int c) {
+        if (parent.children[c] instanceof Leaf) {
+            Leaf child = (Leaf) parent.children[c], left = (Leaf) parent.children[c - 1];
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            System.arraycopy(child.entries, 0, child.entries, 1, child.count);
+            left.count--;
+            child.keys[0] = left.keys[left.count];
+            child.entries[0] = left.entries[left.count];
+            left.keys[left.count] = null;
+            left.entries[left.count] = null;
+            child.count++;
+            parent.keys[c - 1] = child.keys[0];
+        } else {
+            Internal child = (Internal) parent.children[c], left = (Internal) parent.children[c - 1];
+            System.arraycopy(child.keys, 0, child.keys, 1, child.count);
+            System.arraycopy(child.children, 0, child.children, 1, child.count + 1);
+            child.keys[0] = parent.keys[c - 1];
+            child.children[0] = left.children[left.count];
+            child.count++;
+            parent.keys[c - 1] = left.keys[left.count - 1];
+            left.keys[left.count - 1] = null;
+            left.children[left.count] = null;
+            left.count--;
+        }
+    }
+
+    private void borrowFromRight(Internal parent, int c) {
+        if (parent.children[c] instanceof Leaf) {
+            Leaf child = (Leaf) parent.children[c], right = (Leaf) parent.children[c + 1];
+            child.keys[child.count] = right.keys[0];
+            child.entries[child.count] = right.entries[0];
+            child.count++;
+            right.count--;
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count);
+            System.arraycopy(right.entries, 1, right.entries, 0, right.count);
+            right.keys[right.count] = null;
+            right.entries[right.count] = null;
+            parent.keys[c] = right.keys[0];
+        } else {
+            Internal child = (Internal) parent.children[c], right = (Internal) parent.children[c + 1];
+            child.keys[child.count] = parent.keys[c];
+            child.children[child.count + 1] = right.children[0];
+            child.count++;
+            parent.keys[c] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            System.arraycopy(right.children, 1, right.children, 0, right.count);
+            right.count--;
+            right.keys[right.count] = null;
+            right.children[right.count + 1] = null;
+        }
+    }
+
+    // Folds children[i + 1] into children[i] and drops their separator from parent
+    private void merge(Internal parent, int i) {
+        if (parent.children[i] instanceof Leaf) {
+            Leaf left = (Leaf) parent.children[i], right = (Leaf) parent.children[i + 1];
+            System.arraycopy(right.keys, 0, left.keys, left.count, right.count);
+            System.arraycopy(right.entries, 0, left.entries, left.count, right.count);
+            left.count += right.count;
+            left.next = right.next;
+            if (right.next != null) right.next.prev = left;
+        } else {
+            Internal left = (Internal) parent.children[i], right = (Internal) parent.children[i + 1];
+            left.keys[left.count] = parent.keys[i];
+            System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+            System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+            left.count += right.count + 1;
+        }
+        System.arraycopy(parent.keys, i + 1, parent.keys, i, parent.count - i - 1);
+        System.arraycopy(parent.children, i + 2, parent.children, i + 1, parent.count - i - 1);
+        parent.count--;
+        parent.keys[parent.count] = null;
+        parent.children[parent.count + 1] = null;
+    }
+
+    //-----------------------NAVIGATION----------------------
+
+    public Entry<K, V> firstEntry() { return head.count == 0 ? null : entry(head, 0); }
+
+    public Entry<K, V> lastEntry() {
+        Node n = root;
+        while (n instanceof Internal) n = ((Internal) n).children[n.count];
+        Leaf leaf = (Leaf) n;
+        return leaf.count == 0 ? null : entry(leaf, leaf.count - 1);
+    }
+
+    public Entry<K, V> ceilingEntry(K key) {
+        checkKey(key);
+        Leaf leaf = leafFor(key);
+        int i = search(leaf.keys, leaf.count, key);
+        return at(leaf, i >= 0 ? i : -(i + 1));
+    }
+
+    public Entry<K, V> floorEntry(K key) {
+        checkKey(key);
+        Leaf leaf = leafFor(key);
+        int i = search(leaf.keys, leaf.count, key);
+        return at(leaf, i >= 0 ? i : -(i + 1) - 1);
+    }
+
+    public Entry<K, V> higherEntry(K key) {
+        checkKey(key);
+        Leaf leaf = leafFor(key);
+        int i = search(leaf.keys, leaf.count, key);
+        return at(leaf, i >= 0 ? i + 1 : -(i + 1));
+    }
+
+    public Entry<K, V> lowerEntry(K key) {
+        checkKey(key);
+        Leaf leaf = leafFor(key);
+        int i = search(leaf.keys, leaf.count, key);
+        return at(leaf, (i >= 0 ? i : -(i + 1)) - 1);
+    }
+
+    // Walks the leaf chain from a starting slot up to an exclusive bound (none if toKey is null)
+    private class RangeIterator implements Iterator<Entry<K, V>> {
+        private Leaf leaf;
+        private int index;
+        private final K toKey;
+
+        RangeIterator(Leaf leaf, int index, K toKey) {
+            this.leaf = leaf;
+            this.index = index;
+            this.toKey = toKey;
+            skipExhausted();
+        }
+
+        private void skipExhausted() {
+            if (leaf != null && index >= leaf.count) {
+                leaf = leaf.next;
+                index = 0;
+            }
+        }
+
+        @SuppressWarnings({"unchecked"})
+        public boolean hasNext() {
+            return leaf != null && index < leaf.count
+                && (toKey == null || comp.compare((K) leaf.keys[index], toKey) < 0);
+        }
+
+        public Entry<K, V> next() {
+            if (!hasNext()) throw new NoSuchElementException("No further entries");
+            Entry<K, V> e = entry(leaf, index++);
+            skipExhausted();
+            return e;
+        }
+    }
+
+    public Iterable<Entry<K, V>> subMap(K fromKey, K toKey) throws IllegalArgumentException {
+        checkKey(fromKey);
+        checkKey(toKey);
+        if (comp.compare(fromKey, toKey) > 0) throw new IllegalArgumentException("fromKey > toKey");
+        return () -> {
+            Leaf leaf = leafFor(fromKey);
+            int i = search(leaf.keys, leaf.count, fromKey);
+            return new RangeIterator(leaf, i >= 0 ? i : -(i + 1), toKey);
+        };
+    }
+
+    public Iterable<Entry<K, V>> entrySet() { return () -> new RangeIterator(head, 0, null); }
+
+    public static void main(String[] args)
+    {
+        BTreeMap<Integer, String> map = new BTreeMap<>();
+        for (int i = 0; i < 100; i += 10) map.put(i, "v" + i);
+        System.out.println(map.floorEntry(35) + " " + map.ceilingEntry(35));
+        for (Entry<Integer, String> e : map.subMap(20, 60)) System.out.print(e + " ");
+        System.out.println();
+    }
+}
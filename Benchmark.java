@@ -0,0 +1,1217 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+// Small JMH-style harness: warmup iterations, a GC between iterations, throughput over
+// the measured iterations, per-op latency percentiles from a separate sampling pass and
+// allocation per op from the thread allocation counter.
+//
+// Usage: java Benchmark [case regex] [sizes] [distributions] [comparators]
+// The "counting" comparator is not run by default; it adds compares per operation to the report.
+// The "zipf" distribution (a skewed trace for the cache cases) is not run by default either.
+//        java -Dbench.warmups=5 -Dbench.iterations=10 Benchmark "HeapPriorityQueue\.insert" 1000,1000000
+// Multi-threaded cases run each thread count in bench.threads that the case allows, for bench.millis.
+public class Benchmark
+{
+    interface Scenario {
+        void setup(Integer[] keys);     // untimed, builds the state the operations run against
+        void op(int i);                 // one measured operation
+        default int operations(Integer[] keys) { return keys.length; }
+        default String report() { return ""; }
+    }
+
+    static class Case {
+        final String name;
+        final boolean comparatorAware;
+        final Function<Comparator<Integer>, Scenario> factory;
+        int maxSize = Integer.MAX_VALUE;    // larger sizes are skipped (quadratic baselines)
+
+        Case(String name, boolean comparatorAware, Function<Comparator<Integer>, Scenario> factory) {
+            this.name = name;
+            this.comparatorAware = comparatorAware;
+            this.factory = factory;
+        }
+
+        Case upTo(int size) {
+            maxSize = size;
+            return this;
+        }
+    }
+
+    // Workload run by several threads at once against one shared structure
+    interface ThreadScenario {
+        void setup(Integer[] keys);     // untimed, single-threaded
+        void op(int i);                 // called concurrently; i is a per-thread counter
+        default long completed(long ops) { return ops; }    // work done, from the op count
+    }
+
+    static class ThreadCase {
+        final String name;
+        final Supplier<ThreadScenario> factory;
+        final int minThreads, maxThreads;
+
+        ThreadCase(String name, Supplier<ThreadScenario> factory) {
+            this(name, factory, 1, Integer.MAX_VALUE);
+        }
+
+        ThreadCase(String name, Supplier<ThreadScenario> factory, int minThreads, int maxThreads) {
+            this.name = name;
+            this.factory = factory;
+            this.minThreads = minThreads;
+            this.maxThreads = maxThreads;
+        }
+    }
+
+    static final String[] DISTRIBUTIONS = {"sorted", "reverse", "random", "duplicates"};
+    static final String[] COMPARATORS = {"default", "natural", "lambda"};
+
+    static int warmups = Integer.getInteger("bench.warmups", 5);
+    static int iterations = Integer.getInteger("bench.iterations", 10);
+    static int millis = Integer.getInteger("bench.millis", 1000);
+    static int[] threadCounts = parseSizes(System.getProperty("bench.threads", "1,2,4,8,16,32"));
+
+    // written by every operation so the JIT cannot drop the work
+    static Object sink;
+
+    // bumped by the "counting" comparator, reported as compares per operation
+    static long comparisons;
+
+    static Integer[] keys(String distribution, int n, long seed) {
+        Integer[] keys = new Integer[n];
+        Random random = new Random(seed);
+        double[] zipf = distribution.equals("zipf") ? zipfTable(n, 0.99) : null;
+        for (int i = 0; i < n; i++) {
+            switch (distribution) {
+                case "sorted":     keys[i] = i; break;
+                case "reverse":    keys[i] = n - i; break;
+                case "random":     keys[i] = random.nextInt(); break;
+                case "duplicates": keys[i] = i % 1000; break;
+                case "zipf":       keys[i] = zipfRank(zipf, random.nextDouble()); break;
+                default: throw new IllegalArgumentException("Unknown distribution " + distribution);
+            }
+        }
+        return keys;
+    }
+
+    // Cumulative probabilities of ranks 0..n-1 with P(rank r) proportional to 1/(r+1)^s
+    static double[] zipfTable(int n, double s) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int r = 0; r < n; r++) cdf[r] = sum += 1 / Math.pow(r + 1, s);
+        for (int r = 0; r < n; r++) cdf[r] /= sum;
+        return cdf;
+    }
+
+    static int zipfRank(double[] cdf, double u) {
+        int i = Arrays.binarySearch(cdf, u);
+        return Math.min(i < 0 ? -(i + 1) : i, cdf.length - 1);
+    }
+
+    static Comparator<Integer> comparator(String type) {
+        switch (type) {
+            case "default": return new DefaultComparator<>();
+            case "natural": return Comparator.naturalOrder();
+            case "lambda":  return (a, b) -> Integer.compare(a, b);
+            case "counting": return (a, b) -> {
+                comparisons++;
+                return Integer.compare(a, b);
+            };
+            default: throw new IllegalArgumentException("Unknown comparator " + type);
+        }
+    }
+
+    static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getCurrentThreadAllocatedBytes();
+    }
+
+    //-----------------------CASES----------------------
+
+    static void pqCases(List<Case> cases, String name,
+                        Function<Comparator<Integer>, PriorityQueue<Integer, Integer>> make) {
+        pqCases(cases, name, true, make);
+    }
+
+    static void pqCases(List<Case> cases, String name, boolean comparatorAware,
+                        Function<Comparator<Integer>, PriorityQueue<Integer, Integer>> make) {
+        cases.add(new Case(name + ".insert", comparatorAware, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; pq = make.apply(comp); }
+            public void op(int i) { sink = pq.insert(keys[i], keys[i]); }
+        }));
+        cases.add(new Case(name + ".removeMin", comparatorAware, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            public void setup(Integer[] k) { pq = filled(make.apply(comp), k); }
+            public void op(int i) { sink = pq.removeMin(); }
+        }));
+        cases.add(new Case(name + ".min", comparatorAware, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            public void setup(Integer[] k) { pq = filled(make.apply(comp), k); }
+            public void op(int i) { sink = pq.min(); }
+        }));
+        cases.add(new Case(name + ".mixed", comparatorAware, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; pq = filled(make.apply(comp), k); }
+            public void op(int i) {
+                if ((i & 1) == 0) sink = pq.insert(keys[i], keys[i]);
+                else sink = pq.removeMin();
+            }
+        }));
+    }
+
+    static void heapifyCase(List<Case> cases, String name,
+                            Function<Integer[], PriorityQueue<Integer, Integer>> build) {
+        cases.add(new Case(name + ".heapify", false, comp -> new Scenario() {
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; }
+            public void op(int i) { sink = build.apply(keys); }
+            public int operations(Integer[] k) { return 1; }
+        }));
+    }
+
+    // Loads a second batch of batchDivisor-th of the size into an already filled queue.
+    // The batch keys are shifted below the existing ones so ordered distributions stress upheap.
+    static void bulkCases(List<Case> cases, String name, int batchDivisor,
+                          Function<Comparator<Integer>, PriorityQueue<Integer, Integer>> make,
+                          BiConsumer<PriorityQueue<Integer, Integer>, Integer[]> insertAll) {
+        String batch = batchDivisor == 1 ? "n" : "n/" + batchDivisor;
+        cases.add(new Case(name + ".insertAll(k=" + batch + ")", true, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            Integer[] batchKeys;
+            public void setup(Integer[] k) {
+                pq = filled(make.apply(comp), k);
+                batchKeys = batch(k, batchDivisor);
+            }
+            public void op(int i) { insertAll.accept(pq, batchKeys); }
+            public int operations(Integer[] k) { return 1; }
+        }));
+        cases.add(new Case(name + ".insertLoop(k=" + batch + ")", true, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            Integer[] batchKeys;
+            public void setup(Integer[] k) {
+                pq = filled(make.apply(comp), k);
+                batchKeys = batch(k, batchDivisor);
+            }
+            public void op(int i) {
+                for (Integer key : batchKeys) pq.insert(key, key);
+            }
+            public int operations(Integer[] k) { return 1; }
+        }));
+    }
+
+    static Integer[] batch(Integer[] keys, int batchDivisor) {
+        Integer[] batch = new Integer[keys.length / batchDivisor];
+        for (int i = 0; i < batch.length; i++)
+            batch[i] = keys[i] - keys.length;
+        return batch;
+    }
+
+    // Drains a filled queue in batches of k, once through removeMin(k) and once through k single pops
+    static void batchCases(List<Case> cases, String name, int k,
+                           Function<Comparator<Integer>, PriorityQueue<Integer, Integer>> make,
+                           BiConsumer<PriorityQueue<Integer, Integer>, Integer> removeMin) {
+        cases.add(new Case(name + ".removeMin(k=" + k + ")", true, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            public void setup(Integer[] keys) { pq = filled(make.apply(comp), keys); }
+            public void op(int i) { removeMin.accept(pq, k); }
+            public int operations(Integer[] keys) { return Math.max(1, keys.length / k); }
+        }));
+        cases.add(new Case(name + ".removeMinLoop(k=" + k + ")", true, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            public void setup(Integer[] keys) { pq = filled(make.apply(comp), keys); }
+            public void op(int i) {
+                for (int j = 0; j < k; j++) sink = pq.removeMin();
+            }
+            public int operations(Integer[] keys) { return Math.max(1, keys.length / k); }
+        }));
+    }
+
+    // Streams every key through a top-100 queue
+    static void topKCases(List<Case> cases, String name,
+                          Function<Comparator<Integer>, PriorityQueue<Integer, Integer>> make) {
+        cases.add(new Case(name + ".topK(100)", true, comp -> new Scenario() {
+            PriorityQueue<Integer, Integer> pq;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; pq = make.apply(comp); }
+            public void op(int i) { sink = pq.insert(keys[i], keys[i]); }
+        }));
+    }
+
+    static final long TIMER_SPAN = 10_000_000_000L;    // delays spread over 10 s
+    static final Runnable NO_OP = () -> { };
+
+    static long delay(Integer key) { return Math.floorMod(key * 1_000_003L, TIMER_SPAN); }
+
+    // n pending timers; each op schedules one and cancels one, or advances the clock and expires
+    static void timerCases(List<Case> cases) {
+        cases.add(new Case("TimerQueue.scheduleCancel", false, comp -> new Scenario() {
+            TimerQueue timers;
+            Integer[] keys;
+            TimerQueue.Timeout[] pending;
+            public void setup(Integer[] k) {
+                keys = k;
+                timers = new TimerQueue(new TimerQueue.ManualClock(0), 1_000_000, 512);
+                pending = new TimerQueue.Timeout[k.length];
+                for (int i = 0; i < k.length; i++) pending[i] = timers.schedule(delay(k[i]), NO_OP);
+            }
+            public void op(int i) {
+                sink = timers.schedule(delay(keys[i]), NO_OP);
+                timers.cancel(pending[i]);
+            }
+        }));
+        cases.add(new Case("HeapAdaptablePriorityQueue(timers).scheduleCancel", false, comp -> new Scenario() {
+            HeapAdaptablePriorityQueue<Long, Runnable> timers;
+            Integer[] keys;
+            List<Entry<Long, Runnable>> pending = new ArrayList<>();
+            public void setup(Integer[] k) {
+                keys = k;
+                timers = new HeapAdaptablePriorityQueue<>();
+                for (Integer key : k) pending.add(timers.insert(delay(key), NO_OP));
+            }
+            public void op(int i) {
+                sink = timers.insert(delay(keys[i]), NO_OP);
+                timers.remove(pending.get(i));
+            }
+        }));
+        cases.add(new Case("TimerQueue.expire", false, comp -> new Scenario() {
+            TimerQueue.ManualClock clock = new TimerQueue.ManualClock(0);
+            TimerQueue timers;
+            long step;
+            public void setup(Integer[] k) {
+                timers = new TimerQueue(clock, 1_000_000, 512);
+                for (Integer key : k) timers.schedule(delay(key), NO_OP);
+                step = TIMER_SPAN / k.length + 1;
+            }
+            public void op(int i) {
+                clock.advance(step);
+                sink = timers.expire();
+            }
+        }));
+        cases.add(new Case("HeapAdaptablePriorityQueue(timers).expire", false, comp -> new Scenario() {
+            HeapAdaptablePriorityQueue<Long, Runnable> timers;
+            long now, step;
+            public void setup(Integer[] k) {
+                timers = new HeapAdaptablePriorityQueue<>();
+                for (Integer key : k) timers.insert(delay(key), NO_OP);
+                step = TIMER_SPAN / k.length + 1;
+            }
+            public void op(int i) {
+                now += step;
+                while (!timers.isEmpty() && timers.min().getKey() <= now)
+                    timers.removeMin().getValue().run();
+            }
+        }));
+    }
+
+    static void adaptableCases(List<Case> cases, String name,
+                               Function<Comparator<Integer>, AdaptablePriorityQueue<Integer, Integer>> make) {
+        cases.add(new Case(name + ".replaceKey", true, comp -> new Scenario() {
+            AdaptablePriorityQueue<Integer, Integer> pq;
+            List<Entry<Integer, Integer>> entries = new ArrayList<>();
+            public void setup(Integer[] k) {
+                pq = make.apply(comp);
+                for (Integer key : k) entries.add(pq.insert(key, key));
+            }
+            public void op(int i) {
+                Entry<Integer, Integer> e = entries.get(i);
+                pq.replaceKey(e, e.getKey() - 1);
+            }
+        }));
+        cases.add(new Case(name + ".remove", true, comp -> new Scenario() {
+            AdaptablePriorityQueue<Integer, Integer> pq;
+            List<Entry<Integer, Integer>> entries = new ArrayList<>();
+            public void setup(Integer[] k) {
+                pq = make.apply(comp);
+                for (Integer key : k) entries.add(pq.insert(key, key));
+            }
+            public void op(int i) { pq.remove(entries.get(i)); }
+        }));
+    }
+
+    // Merges 64 partition queues of n/64 entries each into one, then drains it
+    static void meldCases(List<Case> cases) {
+        cases.add(new Case("PairingHeapPriorityQueue.meld(64)+drain", true, comp -> new Scenario() {
+            List<PairingHeapPriorityQueue<Integer, Integer>> parts = new ArrayList<>();
+            public void setup(Integer[] k) {
+                for (int p = 0; p < 64; p++) parts.add(new PairingHeapPriorityQueue<>(comp));
+                for (int i = 0; i < k.length; i++) parts.get(i & 63).insert(k[i], k[i]);
+            }
+            public void op(int i) {
+                PairingHeapPriorityQueue<Integer, Integer> all = parts.get(0);
+                for (int p = 1; p < 64; p++) all.meld(parts.get(p));
+                while (!all.isEmpty()) sink = all.removeMin();
+            }
+            public int operations(Integer[] k) { return 1; }
+        }));
+        cases.add(new Case("HeapPriorityQueue.merge(64)+drain", true, comp -> new Scenario() {
+            List<HeapPriorityQueue<Integer, Integer>> parts = new ArrayList<>();
+            public void setup(Integer[] k) {
+                for (int p = 0; p < 64; p++) parts.add(new HeapPriorityQueue<>(comp));
+                for (int i = 0; i < k.length; i++) parts.get(i & 63).insert(k[i], k[i]);
+            }
+            public void op(int i) {
+                HeapPriorityQueue<Integer, Integer> all = parts.get(0);
+                for (int p = 1; p < 64; p++) all.merge(parts.get(p));
+                while (!all.isEmpty()) sink = all.removeMin();
+            }
+            public int operations(Integer[] k) { return 1; }
+        }));
+    }
+
+    static void mapCases(List<Case> cases, String name, int maxSize, Supplier<Map<Integer, Integer>> make) {
+        cases.add(new Case(name + ".put", false, comp -> new Scenario() {
+            Map<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = make.get(); }
+            public void op(int i) { sink = map.put(keys[i], keys[i]); }
+        }).upTo(maxSize));
+        cases.add(new Case(name + ".get", false, comp -> new Scenario() {
+            Map<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = filled(make.get(), k); }
+            public void op(int i) { sink = map.get(keys[i]); }
+        }).upTo(maxSize));
+        cases.add(new Case(name + ".remove", false, comp -> new Scenario() {
+            Map<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = filled(make.get(), k); }
+            public void op(int i) { sink = map.remove(keys[i]); }
+        }).upTo(maxSize));
+    }
+
+    static void primitiveMapCases(List<Case> cases) {
+        cases.add(new Case("LongObjectMap.put(long)", false, comp -> new Scenario() {
+            LongObjectMap<Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = new LongObjectMap<>(); }
+            public void op(int i) { sink = map.put(keys[i], keys[i]); }
+        }));
+        cases.add(new Case("LongObjectMap.get(long)", false, comp -> new Scenario() {
+            LongObjectMap<Integer> map;
+            long[] keys;
+            public void setup(Integer[] k) {
+                map = new LongObjectMap<>();
+                keys = new long[k.length];
+                for (int i = 0; i < k.length; i++) map.put(keys[i] = k[i], k[i]);
+            }
+            public void op(int i) { sink = map.get(keys[i]); }
+        }));
+        cases.add(new Case("LongObjectMap.remove(long)", false, comp -> new Scenario() {
+            LongObjectMap<Integer> map;
+            long[] keys;
+            public void setup(Integer[] k) {
+                map = new LongObjectMap<>();
+                keys = new long[k.length];
+                for (int i = 0; i < k.length; i++) map.put(keys[i] = k[i], k[i]);
+            }
+            public void op(int i) { sink = map.remove(keys[i]); }
+        }));
+        cases.add(new Case("IntIntMap.put(int)", false, comp -> new Scenario() {
+            IntIntMap map;
+            int[] keys;
+            public void setup(Integer[] k) {
+                map = new IntIntMap();
+                keys = new int[k.length];
+                for (int i = 0; i < k.length; i++) keys[i] = k[i];
+            }
+            public void op(int i) { map.put(keys[i], i); }
+        }));
+        cases.add(new Case("IntIntMap.get(int)", false, comp -> new Scenario() {
+            IntIntMap map;
+            int[] keys;
+            long total;
+            public void setup(Integer[] k) {
+                map = new IntIntMap();
+                keys = new int[k.length];
+                for (int i = 0; i < k.length; i++) map.put(keys[i] = k[i], i);
+            }
+            public void op(int i) { total += map.get(keys[i]); }
+            public String report() { sink = total; return ""; }
+        }));
+    }
+
+    // Each operation reads the next 100 entries at or after a key; the unsorted baseline
+    // has to sort a copy of its entries first
+    static void rangeCases(List<Case> cases) {
+        cases.add(new Case("BTreeMap.floorEntry", true, comp -> new Scenario() {
+            BTreeMap<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = (BTreeMap<Integer, Integer>) filled(new BTreeMap<>(comp), k); }
+            public void op(int i) { sink = map.floorEntry(keys[i] - 1); }
+        }));
+        cases.add(new Case("BTreeMap.subMap(100)", true, comp -> new Scenario() {
+            BTreeMap<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = (BTreeMap<Integer, Integer>) filled(new BTreeMap<>(comp), k); }
+            public void op(int i) {
+                int n = 0;
+                for (Entry<Integer, Integer> e : map.subMap(keys[i], Integer.MAX_VALUE)) {
+                    sink = e;
+                    if (++n == 100) break;
+                }
+            }
+        }));
+        cases.add(new Case("UnsortedPositionalMap.sortedRange(100)", true, comp -> new Scenario() {
+            Map<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = filled(new UnsortedPositionalMap<>(), k); }
+            public void op(int i) {
+                List<Entry<Integer, Integer>> sorted = new ArrayList<>();
+                for (Entry<Integer, Integer> e : map.entrySet()) sorted.add(e);
+                sorted.sort((a, b) -> comp.compare(a.getKey(), b.getKey()));
+                int from = 0;
+                while (from < sorted.size() && comp.compare(sorted.get(from).getKey(), keys[i]) < 0) from++;
+                for (int j = from; j < Math.min(from + 100, sorted.size()); j++) sink = sorted.get(j);
+            }
+        }).upTo(10_000));
+    }
+
+    // Read-through lookups with a bound of a hundredth of the key count; reports the hit rate
+    static void cacheCases(List<Case> cases, BoundedCache.Policy policy) {
+        cases.add(new Case("BoundedCache(" + policy + ").getOrLoad", false, comp -> new Scenario() {
+            BoundedCache<Integer, Integer> cache;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; cache = new BoundedCache<>(Math.max(16, k.length / 100), policy); }
+            public void op(int i) {
+                Integer v = cache.get(keys[i]);
+                if (v == null) cache.put(keys[i], keys[i]);
+                sink = v;
+            }
+            public String report() { return String.format("hit=%.1f%%", 100 * cache.hitRate()); }
+        }));
+    }
+
+    static Map<Integer, Integer> filled(Map<Integer, Integer> map, Integer[] keys) {
+        for (Integer key : keys) map.put(key, key);
+        return map;
+    }
+
+    static void longKeyCases(List<Case> cases) {
+        cases.add(new Case("LongKeyHeapPriorityQueue.offer(long)", false, comp -> new Scenario() {
+            LongKeyHeapPriorityQueue<Integer> pq;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; pq = new LongKeyHeapPriorityQueue<>(); }
+            public void op(int i) { pq.offer(keys[i], keys[i]); }
+        }));
+        cases.add(new Case("LongKeyHeapPriorityQueue.removeMinValue", false, comp -> new Scenario() {
+            LongKeyHeapPriorityQueue<Integer> pq;
+            public void setup(Integer[] k) {
+                pq = new LongKeyHeapPriorityQueue<>();
+                for (Integer key : k) pq.offer(key, key);
+            }
+            public void op(int i) { sink = pq.removeMinValue(); }
+        }));
+    }
+
+    // Direct buffers are released by the collector between iterations (there is no teardown)
+    static void offHeapCases(List<Case> cases) {
+        cases.add(new Case("OffHeapHeapPriorityQueue.offer(long)", false, comp -> new Scenario() {
+            OffHeapHeapPriorityQueue<Integer> pq;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; pq = new OffHeapHeapPriorityQueue<>(Codec.INT); }
+            public void op(int i) { pq.offer(keys[i], keys[i]); }
+        }));
+        cases.add(new Case("OffHeapHeapPriorityQueue.removeMinValue", false, comp -> new Scenario() {
+            OffHeapHeapPriorityQueue<Integer> pq;
+            public void setup(Integer[] k) {
+                pq = new OffHeapHeapPriorityQueue<>(Codec.INT);
+                for (Integer key : k) pq.offer(key, key);
+            }
+            public void op(int i) { sink = pq.removeMinValue(); }
+        }));
+        cases.add(new Case("OffHeapLongMap.put(long)", false, comp -> new Scenario() {
+            OffHeapLongMap<Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = new OffHeapLongMap<>(Codec.INT); }
+            public void op(int i) { sink = map.put(keys[i], keys[i]); }
+        }));
+        cases.add(new Case("OffHeapLongMap.get(long)", false, comp -> new Scenario() {
+            OffHeapLongMap<Integer> map;
+            long[] keys;
+            public void setup(Integer[] k) {
+                map = new OffHeapLongMap<>(Codec.INT);
+                keys = new long[k.length];
+                for (int i = 0; i < k.length; i++) map.put(keys[i] = k[i], k[i]);
+            }
+            public void op(int i) { sink = map.get(keys[i]); }
+        }));
+    }
+
+    // Each setup starts from an empty directory; PER_OP pays an fsync per operation, so it stays small
+    static void mappedCases(List<Case> cases) {
+        for (MappedHeapPriorityQueue.SyncPolicy policy : MappedHeapPriorityQueue.SyncPolicy.values()) {
+            cases.add(new Case("MappedHeapPriorityQueue(" + policy + ").insert", false, comp -> new Scenario() {
+                MappedHeapPriorityQueue<Integer> pq;
+                Integer[] keys;
+                public void setup(Integer[] k) {
+                    keys = k;
+                    pq = openMapped(policy);
+                }
+                public void op(int i) { pq.offer(keys[i], keys[i]); }
+            }).upTo(policy == MappedHeapPriorityQueue.SyncPolicy.PER_OP ? 1000 : Integer.MAX_VALUE));
+        }
+        cases.add(new Case("MappedHeapPriorityQueue(BATCHED).removeMinValue", false, comp -> new Scenario() {
+            MappedHeapPriorityQueue<Integer> pq;
+            public void setup(Integer[] k) {
+                pq = openMapped(MappedHeapPriorityQueue.SyncPolicy.BATCHED);
+                for (Integer key : k) pq.offer(key, key);
+            }
+            public void op(int i) { sink = pq.removeMinValue(); }
+        }));
+    }
+
+    static MappedHeapPriorityQueue<Integer> mappedQueue;
+
+    static MappedHeapPriorityQueue<Integer> openMapped(MappedHeapPriorityQueue.SyncPolicy policy) {
+        try {
+            if (mappedQueue != null) mappedQueue.close();
+            Path dir = Path.of(System.getProperty("java.io.tmpdir"), "benchmark-mapped-heap");
+            for (String file : new String[] {"heap.dat", "heap.wal", "heap.snap"})
+                Files.deleteIfExists(dir.resolve(file));
+            return mappedQueue = new MappedHeapPriorityQueue<>(dir, Codec.INT, policy);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Whole-queue snapshot to and from memory; restore is compared against the heapify case
+    static void snapshotCases(List<Case> cases) {
+        cases.add(new Case("Snapshots.write(HeapPriorityQueue)", false, comp -> new Scenario() {
+            HeapPriorityQueue<Integer, Integer> pq;
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            public void setup(Integer[] k) { pq = (HeapPriorityQueue<Integer, Integer>) filled(new HeapPriorityQueue<>(), k); }
+            public void op(int i) {
+                bytes.reset();
+                try {
+                    Snapshots.write(pq, Codec.INT, Codec.INT, Channels.newChannel(bytes));
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            public int operations(Integer[] k) { return 1; }
+            public String report() { return String.format("%.1f B/entry", (double) bytes.size() / pq.size()); }
+        }));
+        cases.add(new Case("Snapshots.readHeap", false, comp -> new Scenario() {
+            byte[] bytes;
+            public void setup(Integer[] k) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                try {
+                    Snapshots.write((HeapPriorityQueue<Integer, Integer>) filled(new HeapPriorityQueue<>(), k),
+                        Codec.INT, Codec.INT, Channels.newChannel(out));
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                bytes = out.toByteArray();
+            }
+            public void op(int i) {
+                try {
+                    sink = Snapshots.readHeap(Channels.newChannel(new ByteArrayInputStream(bytes)), Codec.INT, Codec.INT);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            public int operations(Integer[] k) { return 1; }
+        }));
+    }
+
+    static void stackCases(List<Case> cases, String name, Function<Comparator<Integer>, Stack<Integer>> make) {
+        cases.add(new Case(name + ".push", false, comp -> new Scenario() {
+            Stack<Integer> stack;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; stack = make.apply(comp); }
+            public void op(int i) { stack.push(keys[i]); }
+        }));
+        cases.add(new Case(name + ".pop", false, comp -> new Scenario() {
+            Stack<Integer> stack;
+            public void setup(Integer[] k) {
+                stack = make.apply(comp);
+                for (Integer key : k) stack.push(key);
+            }
+            public void op(int i) { sink = stack.pop(); }
+        }));
+        cases.add(new Case(name + ".top", false, comp -> new Scenario() {
+            Stack<Integer> stack;
+            public void setup(Integer[] k) {
+                stack = make.apply(comp);
+                for (Integer key : k) stack.push(key);
+            }
+            public void op(int i) { sink = stack.top(); }
+        }));
+    }
+
+    // Random digraph with 8 out-edges per node and weights 1..1000, in compressed adjacency
+    // form: the edges of u are to[start[u]] .. to[start[u + 1] - 1]
+    static class Graph {
+        final int[] start, to, weight;
+        final Integer[] ids;    // boxed node ids, so queues with object values don't allocate them
+
+        Graph(int n) {
+            Random random = new Random(42);
+            start = new int[n + 1];
+            to = new int[8 * n];
+            weight = new int[8 * n];
+            ids = new Integer[n];
+            for (int u = 0; u < n; u++) {
+                start[u + 1] = start[u] + 8;
+                ids[u] = u;
+            }
+            for (int e = 0; e < to.length; e++) {
+                to[e] = random.nextInt(n);
+                weight[e] = 1 + random.nextInt(1000);
+            }
+        }
+    }
+
+    static Graph graph;
+
+    static Graph graph(int n) {
+        if (graph == null || graph.ids.length != n) graph = new Graph(n);
+        return graph;
+    }
+
+    // Primitive long-key queue as the shortest-path loop sees it
+    interface LongQueue {
+        void offer(long key, Integer node);
+        boolean isEmpty();
+        long peekMinKey();
+        Integer removeMinValue();
+    }
+
+    // Lazy-deletion Dijkstra from node 0; returns the sum of the reachable distances
+    static long dijkstra(Graph g, LongQueue pq) {
+        long[] dist = new long[g.ids.length];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        dist[0] = 0;
+        pq.offer(0, g.ids[0]);
+        long total = 0;
+        while (!pq.isEmpty()) {
+            long d = pq.peekMinKey();
+            int u = pq.removeMinValue();
+            if (d > dist[u]) continue;
+            total += d;
+            for (int e = g.start[u]; e < g.start[u + 1]; e++) {
+                int v = g.to[e];
+                long nd = d + g.weight[e];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    pq.offer(nd, g.ids[v]);
+                }
+            }
+        }
+        return total;
+    }
+
+    static long dijkstra(Graph g, PriorityQueue<Long, Integer> pq) {
+        long[] dist = new long[g.ids.length];
+        Arrays.fill(dist, Long.MAX_VALUE);
+        dist[0] = 0;
+        pq.insert(0L, g.ids[0]);
+        long total = 0;
+        while (!pq.isEmpty()) {
+            Entry<Long, Integer> min = pq.removeMin();
+            long d = min.getKey();
+            int u = min.getValue();
+            if (d > dist[u]) continue;
+            total += d;
+            for (int e = g.start[u]; e < g.start[u + 1]; e++) {
+                int v = g.to[e];
+                long nd = d + g.weight[e];
+                if (nd < dist[v]) {
+                    dist[v] = nd;
+                    pq.insert(nd, g.ids[v]);
+                }
+            }
+        }
+        return total;
+    }
+
+    // One shortest-path run over a graph with as many nodes as the size
+    static void dijkstraCases(List<Case> cases) {
+        cases.add(new Case("Dijkstra.HeapPriorityQueue", false, comp -> new Scenario() {
+            Graph g;
+            public void setup(Integer[] k) { g = graph(k.length); }
+            public void op(int i) { sink = dijkstra(g, new HeapPriorityQueue<Long, Integer>()); }
+            public int operations(Integer[] k) { return 1; }
+        }));
+        cases.add(new Case("Dijkstra.TernaryHeapPriorityQueue", false, comp -> new Scenario() {
+            Graph g;
+            public void setup(Integer[] k) { g = graph(k.length); }
+            public void op(int i) { sink = dijkstra(g, new TernaryHeapPriorityQueue<Long, Integer>()); }
+            public int operations(Integer[] k) { return 1; }
+        }));
+        cases.add(new Case("Dijkstra.LongKeyHeapPriorityQueue", false, comp -> new Scenario() {
+            Graph g;
+            public void setup(Integer[] k) { g = graph(k.length); }
+            public void op(int i) {
+                LongKeyHeapPriorityQueue<Integer> pq = new LongKeyHeapPriorityQueue<>();
+                sink = dijkstra(g, new LongQueue() {
+                    public void offer(long key, Integer node) { pq.offer(key, node); }
+                    public boolean isEmpty() { return pq.isEmpty(); }
+                    public long peekMinKey() { return pq.peekMinKey(); }
+                    public Integer removeMinValue() { return pq.removeMinValue(); }
+                });
+            }
+            public int operations(Integer[] k) { return 1; }
+        }));
+        cases.add(new Case("Dijkstra.RadixHeapPriorityQueue", false, comp -> new Scenario() {
+            Graph g;
+            public void setup(Integer[] k) { g = graph(k.length); }
+            public void op(int i) {
+                RadixHeapPriorityQueue<Integer> pq = new RadixHeapPriorityQueue<>();
+                sink = dijkstra(g, new LongQueue() {
+                    public void offer(long key, Integer node) { pq.offer(key, node); }
+                    public boolean isEmpty() { return pq.isEmpty(); }
+                    public long peekMinKey() { return pq.peekMinKey(); }
+                    public Integer removeMinValue() { return pq.removeMinValue(); }
+                });
+            }
+            public int operations(Integer[] k) { return 1; }
+        }));
+    }
+
+    static void minStackCases(List<Case> cases) {
+        cases.add(new Case("MinStack.popMin", true, comp -> new Scenario() {
+            MinStack<Integer> stack;
+            public void setup(Integer[] k) {
+                stack = new MinStack<>(comp);
+                for (Integer key : k) stack.push(key);
+            }
+            public void op(int i) { sink = stack.popMin(); }
+        }));
+        // push, pop and min interleaved, no holes
+        cases.add(new Case("MinStack.pushPopMin", true, comp -> new Scenario() {
+            MinStack<Integer> stack;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; stack = new MinStack<>(comp); }
+            public void op(int i) {
+                switch (i % 3) {
+                    case 0: stack.push(keys[i]); break;
+                    case 1: stack.push(keys[i]); sink = stack.min(); break;
+                    default: sink = stack.pop();
+                }
+            }
+        }));
+        // every fourth op takes the minimum out of the middle
+        cases.add(new Case("MinStack.mixed", true, comp -> new Scenario() {
+            MinStack<Integer> stack;
+            Integer[] keys;
+            public void setup(Integer[] k) {
+                keys = k;
+                stack = new MinStack<>(comp);
+                for (Integer key : k) stack.push(key);
+            }
+            public void op(int i) {
+                switch (i & 3) {
+                    case 0: sink = stack.popMin(); break;
+                    case 1: sink = stack.pop(); break;
+                    default: stack.push(keys[i]);
+                }
+            }
+        }));
+    }
+
+    // make is given the capacity the case needs, which the bounded queues must honour
+    static void queueCases(List<Case> cases, String name, IntFunction<Queue<Integer>> make) {
+        cases.add(new Case(name + ".enqueue", false, comp -> new Scenario() {
+            Queue<Integer> queue;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; queue = make.apply(k.length); }
+            public void op(int i) { queue.enqueue(keys[i]); }
+        }));
+        cases.add(new Case(name + ".dequeue", false, comp -> new Scenario() {
+            Queue<Integer> queue;
+            public void setup(Integer[] k) {
+                queue = make.apply(k.length);
+                for (Integer key : k) queue.enqueue(key);
+            }
+            public void op(int i) { sink = queue.dequeue(); }
+        }));
+        // steady state with 64 elements queued, as in a BFS fringe or a handoff buffer
+        cases.add(new Case(name + ".enqueueDequeue", false, comp -> new Scenario() {
+            Queue<Integer> queue;
+            Integer[] keys;
+            public void setup(Integer[] k) {
+                keys = k;
+                queue = make.apply(128);
+                for (int i = 0; i < 64; i++) queue.enqueue(k[i % k.length]);
+            }
+            public void op(int i) {
+                queue.enqueue(keys[i]);
+                sink = queue.dequeue();
+            }
+        }));
+    }
+
+    static void breadthfirstCase(List<Case> cases) {
+        cases.add(new Case("LinkedBinaryTree.breadthfirst", false, comp -> new Scenario() {
+            LinkedHeapPriorityQueue<Integer, Integer> tree;
+            public void setup(Integer[] k) {
+                tree = new LinkedHeapPriorityQueue<>();
+                for (Integer key : k) tree.insert(key, key);
+            }
+            public void op(int i) { sink = tree.breadthfirst(); }
+            public int operations(Integer[] k) { return 1; }
+        }));
+    }
+
+    static PriorityQueue<Integer, Integer> filled(PriorityQueue<Integer, Integer> pq, Integer[] keys) {
+        for (Integer key : keys) pq.insert(key, key);
+        return pq;
+    }
+
+    static List<Case> cases() {
+        List<Case> cases = new ArrayList<>();
+
+        pqCases(cases, "HeapPriorityQueue", HeapPriorityQueue::new);
+        heapifyCase(cases, "HeapPriorityQueue", keys -> new HeapPriorityQueue<>(keys, keys));
+
+        for (int divisor : new int[] {1, 64}) {
+            bulkCases(cases, "HeapPriorityQueue", divisor, HeapPriorityQueue::new,
+                (pq, keys) -> ((HeapPriorityQueue<Integer, Integer>) pq).insertAll(keys, keys));
+            bulkCases(cases, "FlatHeapPriorityQueue", divisor, FlatHeapPriorityQueue::new,
+                (pq, keys) -> ((FlatHeapPriorityQueue<Integer, Integer>) pq).insertAll(keys, keys));
+        }
+
+        for (int k : new int[] {64, 1024}) {
+            batchCases(cases, "HeapPriorityQueue", k, HeapPriorityQueue::new,
+                (pq, n) -> sink = ((HeapPriorityQueue<Integer, Integer>) pq).removeMin(n));
+            batchCases(cases, "FlatHeapPriorityQueue", k, FlatHeapPriorityQueue::new,
+                (pq, n) -> sink = ((FlatHeapPriorityQueue<Integer, Integer>) pq).removeMin(n));
+        }
+
+        pqCases(cases, "TernaryHeapPriorityQueue", TernaryHeapPriorityQueue::new);
+        heapifyCase(cases, "TernaryHeapPriorityQueue", keys -> new TernaryHeapPriorityQueue<>(keys, keys));
+
+        for (int arity : new int[] {2, 3, 4, 8, 16}) {
+            String name = "DaryHeapPriorityQueue(" + arity + ")";
+            pqCases(cases, name, comp -> new DaryHeapPriorityQueue<>(arity, comp));
+            heapifyCase(cases, name, keys -> new DaryHeapPriorityQueue<>(arity, keys, keys));
+        }
+
+        topKCases(cases, "BoundedHeapPriorityQueue", comp -> new BoundedHeapPriorityQueue<>(100, comp));
+        topKCases(cases, "BoundedTernaryHeapPriorityQueue", comp -> new BoundedTernaryHeapPriorityQueue<>(100, comp));
+
+        pqCases(cases, "HeapAdaptablePriorityQueue", HeapAdaptablePriorityQueue::new);
+        adaptableCases(cases, "HeapAdaptablePriorityQueue", HeapAdaptablePriorityQueue::new);
+
+        pqCases(cases, "FlatHeapPriorityQueue", FlatHeapPriorityQueue::new);
+        heapifyCase(cases, "FlatHeapPriorityQueue", keys -> new FlatHeapPriorityQueue<>(keys, keys));
+
+        pqCases(cases, "IntKeyHeapPriorityQueue", false, comp -> new IntKeyHeapPriorityQueue<>());
+        longKeyCases(cases);
+        dijkstraCases(cases);
+        offHeapCases(cases);
+        mappedCases(cases);
+        snapshotCases(cases);
+
+        pqCases(cases, "LinkedHeapPriorityQueue", LinkedHeapPriorityQueue::new);
+        pqCases(cases, "PairingHeapPriorityQueue", PairingHeapPriorityQueue::new);
+        adaptableCases(cases, "PairingHeapPriorityQueue", PairingHeapPriorityQueue::new);
+        meldCases(cases);
+
+        timerCases(cases);
+
+        mapCases(cases, "UnsortedPositionalMap", 10_000, UnsortedPositionalMap::new);
+        mapCases(cases, "ProbeHashMap", Integer.MAX_VALUE, ProbeHashMap::new);
+        mapCases(cases, "LinkedHashPositionalMap", Integer.MAX_VALUE, LinkedHashPositionalMap::new);
+        mapCases(cases, "LinkedHashPositionalMap(access)", Integer.MAX_VALUE, () -> new LinkedHashPositionalMap<>(true));
+        primitiveMapCases(cases);
+        mapCases(cases, "BTreeMap", Integer.MAX_VALUE, BTreeMap::new);
+        rangeCases(cases);
+        for (BoundedCache.Policy policy : BoundedCache.Policy.values())
+            cacheCases(cases, policy);
+
+        stackCases(cases, "PriorityQueueStack", comp -> new PriorityQueueStack<>());
+        stackCases(cases, "MinStack", MinStack::new);
+        queueCases(cases, "LinkedQueue", capacity -> new LinkedQueue<>());
+        queueCases(cases, "ArrayQueue", capacity -> new ArrayQueue<>());
+        queueCases(cases, "SpscArrayQueue", SpscArrayQueue::new);
+        queueCases(cases, "MpscArrayQueue", MpscArrayQueue::new);
+        breadthfirstCase(cases);
+        minStackCases(cases);
+
+        return cases;
+    }
+
+    // Prefilled queue under a 50/50 insert/removeMin mix from every thread
+    static ThreadCase pqThreadCase(String name, Supplier<PriorityQueue<Integer, Integer>> make) {
+        return new ThreadCase(name + ".mixed", () -> new ThreadScenario() {
+            PriorityQueue<Integer, Integer> pq;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; pq = filled(make.get(), k); }
+            public void op(int i) {
+                if ((i & 1) == 0) {
+                    Integer key = keys[(i >>> 1) % keys.length];
+                    sink = pq.insert(key, key);
+                }
+                else sink = pq.removeMin();
+            }
+        });
+    }
+
+    // HeapPriorityQueue behind one global lock, the setup ConcurrentPriorityQueue replaces
+    static class LockedPriorityQueue<K, V> implements PriorityQueue<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final HeapPriorityQueue<K, V> heap = new HeapPriorityQueue<>();
+        public int size() { lock.lock(); try { return heap.size(); } finally { lock.unlock(); } }
+        public boolean isEmpty() { return size() == 0; }
+        public Entry<K, V> insert(K k, V v) { lock.lock(); try { return heap.insert(k, v); } finally { lock.unlock(); } }
+        public Entry<K, V> min() { lock.lock(); try { return heap.min(); } finally { lock.unlock(); } }
+        public Entry<K, V> removeMin() { lock.lock(); try { return heap.removeMin(); } finally { lock.unlock(); } }
+    }
+
+    // One consumer thread and up to maxProducers producer threads passing keys through a queue
+    // of 1024 slots; reports elements delivered per second. Whoever fails to make progress yields.
+    static <Q extends Queue<Integer>> ThreadCase handoffThreadCase(String name, int maxProducers,
+                                                                 Supplier<Q> make, BiPredicate<Q, Integer> offer) {
+        return new ThreadCase(name + ".handoff", () -> new ThreadScenario() {
+            Q queue;
+            Integer[] keys;
+            long received = 0;      // written by the consumer only, read after the join
+            final AtomicInteger roles = new AtomicInteger();
+            final ThreadLocal<Integer> role = ThreadLocal.withInitial(roles::getAndIncrement);
+            public void setup(Integer[] k) { keys = k; queue = make.get(); }
+            public void op(int i) {
+                if (role.get() == 0) {
+                    if (queue.dequeue() != null) received++;
+                    else Thread.yield();
+                }
+                else if (!offer.test(queue, keys[i % keys.length])) Thread.yield();
+            }
+            public long completed(long ops) { return received; }
+        }, 2, maxProducers + 1);
+    }
+
+    // LinkedQueue under a lock, bounded like the ring queues
+    static class LockedQueue<E> implements Queue<E> {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedQueue<E> queue = new LinkedQueue<>();
+        final int capacity;
+        LockedQueue(int capacity) { this.capacity = capacity; }
+        public int size() { lock.lock(); try { return queue.size(); } finally { lock.unlock(); } }
+        public boolean isEmpty() { return size() == 0; }
+        public void enqueue(E e) { if (!offer(e)) throw new IllegalStateException("Queue is full"); }
+        public boolean offer(E e) {
+            lock.lock();
+            try {
+                if (queue.size() == capacity) return false;
+                queue.enqueue(e);
+                return true;
+            }
+            finally { lock.unlock(); }
+        }
+        public E first() { lock.lock(); try { return queue.first(); } finally { lock.unlock(); } }
+        public E dequeue() { lock.lock(); try { return queue.dequeue(); } finally { lock.unlock(); } }
+    }
+
+    // Prefilled map under random keys, 80% get, 10% put, 10% remove
+    static ThreadCase mapThreadCase(String name, Supplier<Map<Integer, Integer>> make) {
+        return new ThreadCase(name + ".mixed", () -> new ThreadScenario() {
+            Map<Integer, Integer> map;
+            Integer[] keys;
+            public void setup(Integer[] k) { keys = k; map = filled(make.get(), k); }
+            public void op(int i) {
+                Integer key = keys[ThreadLocalRandom.current().nextInt(keys.length)];
+                switch (i % 10) {
+                    case 0:  sink = map.put(key, key); break;
+                    case 5:  sink = map.remove(key); break;
+                    default: sink = map.get(key);
+                }
+            }
+        });
+    }
+
+    // ProbeHashMap behind one global lock, the setup StripedConcurrentMap replaces
+    static class LockedMap<K, V> extends AbstractMap<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final ProbeHashMap<K, V> map = new ProbeHashMap<>();
+        public int size() { lock.lock(); try { return map.size(); } finally { lock.unlock(); } }
+        public V get(K k) { lock.lock(); try { return map.get(k); } finally { lock.unlock(); } }
+        public V put(K k, V v) { lock.lock(); try { return map.put(k, v); } finally { lock.unlock(); } }
+        public V remove(K k) { lock.lock(); try { return map.remove(k); } finally { lock.unlock(); } }
+        public Iterable<Entry<K, V>> entrySet() { lock.lock(); try { return map.entrySet(); } finally { lock.unlock(); } }
+    }
+
+    static List<ThreadCase> threadCases() {
+        List<ThreadCase> cases = new ArrayList<>();
+
+        cases.add(pqThreadCase("LockedHeapPriorityQueue", LockedPriorityQueue::new));
+        cases.add(pqThreadCase("BlockingPriorityQueue", BlockingPriorityQueue::new));
+        cases.add(pqThreadCase("ConcurrentPriorityQueue(STRICT)",
+            () -> new ConcurrentPriorityQueue<>(ConcurrentPriorityQueue.Mode.STRICT)));
+        cases.add(pqThreadCase("ConcurrentPriorityQueue(RELAXED)",
+            () -> new ConcurrentPriorityQueue<>(ConcurrentPriorityQueue.Mode.RELAXED)));
+
+        cases.add(mapThreadCase("LockedProbeHashMap", LockedMap::new));
+        cases.add(mapThreadCase("StripedConcurrentMap", StripedConcurrentMap::new));
+
+        cases.add(handoffThreadCase("LockedLinkedQueue(SPSC)", 1, () -> new LockedQueue<>(1024), LockedQueue::offer));
+        cases.add(handoffThreadCase("SpscArrayQueue", 1, () -> new SpscArrayQueue<>(1024), SpscArrayQueue::offer));
+        cases.add(handoffThreadCase("LockedLinkedQueue(MPSC)", Integer.MAX_VALUE - 1,
+            () -> new LockedQueue<>(1024), LockedQueue::offer));
+        cases.add(handoffThreadCase("MpscArrayQueue", Integer.MAX_VALUE - 1, () -> new MpscArrayQueue<>(1024),
+            MpscArrayQueue::offer));
+
+        return cases;
+    }
+
+    //-----------------------RUN----------------------
+
+    static void run(Case c, Integer[] keys, String distribution, String comparatorName) {
+        Comparator<Integer> comp = comparator(comparatorName);
+        long ops = 0, nanos = 0, bytes = 0, compares = 0;
+
+        for (int it = 0; it < warmups + iterations; it++) {
+            Scenario s = c.factory.apply(comp);
+            s.setup(keys);
+            int n = s.operations(keys);
+            System.gc();
+
+            long compareStart = comparisons;
+            long allocStart = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) s.op(i);
+            long finish = System.nanoTime();
+            long allocFinish = allocatedBytes();
+
+            if (it >= warmups) {
+                ops += n;
+                nanos += finish - start;
+                bytes += allocFinish - allocStart;
+                compares += comparisons - compareStart;
+            }
+        }
+
+        // separate pass so the timer calls don't distort the throughput numbers
+        Scenario s = c.factory.apply(comp);
+        s.setup(keys);
+        int n = s.operations(keys);
+        long[] samples = new long[n];
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            s.op(i);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+
+        double seconds = nanos / 1e9;
+        System.out.printf("%-52s %9d %-10s %-8s %14.0f %8d %8d %8d %10.1f %10.1f %s%n",
+            c.name, keys.length, distribution, comparatorName,
+            ops / seconds,
+            percentile(samples, 0.50), percentile(samples, 0.99), percentile(samples, 0.999),
+            (double) bytes / ops, bytes / seconds / (1 << 20),
+            compares > 0 ? String.format("cmp/op=%.1f %s", (double) compares / ops, s.report()) : s.report());
+    }
+
+    // Runs the scenario on the given number of threads for bench.millis, once to warm up
+    static void runThreads(ThreadCase c, Integer[] keys, String distribution, int threads)
+        throws InterruptedException {
+        double opsPerSecond = 0;
+        for (int round = 0; round < 2; round++) {
+            ThreadScenario s = c.factory.get();
+            s.setup(keys);
+            System.gc();
+
+            AtomicBoolean running = new AtomicBoolean(true);
+            LongAdder total = new LongAdder();
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] workers = new Thread[threads];
+            for (int t = 0; t < threads; t++) {
+                workers[t] = new Thread(() -> {
+                    try { start.await(); } catch (InterruptedException e) { return; }
+                    int i = 0;
+                    while (running.get()) s.op(i++);
+                    total.add(i);
+                });
+                workers[t].start();
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            Thread.sleep(millis);
+            running.set(false);
+            for (Thread worker : workers) worker.join();
+            opsPerSecond = s.completed(total.sum()) / ((System.nanoTime() - begin) / 1e9);
+        }
+        System.out.printf("%-52s %9d %-10s %-8s %14.0f%n",
+            c.name, keys.length, distribution, "t=" + threads, opsPerSecond);
+    }
+
+    static long percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))];
+    }
+
+    static void header() {
+        System.out.printf("%-52s %9s %-10s %-8s %14s %8s %8s %8s %10s %10s%n",
+            "case", "size", "keys", "comp", "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "B/op", "MB/s");
+    }
+
+    static int[] parseSizes(String s) {
+        return Arrays.stream(s.split(",")).mapToInt(x -> Integer.parseInt(x.replace("_", ""))).toArray();
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        int[] sizes = parseSizes(args.length > 1 ? args[1] : "1000,100000");
+        String[] distributions = args.length > 2 ? args[2].split(",") : DISTRIBUTIONS;
+        String[] comparators = args.length > 3 ? args[3].split(",") : COMPARATORS;
+
+        header();
+        for (Case c : cases()) {
+            if (!filter.matcher(c.name).find()) continue;
+            for (int size : sizes) {
+                if (size > c.maxSize) continue;
+                for (String distribution : distributions) {
+                    Integer[] keys = keys(distribution, size, 42);
+                    for (String comparatorName : c.comparatorAware ? comparators : new String[] {"default"}) {
+                        try {
+                            run(c, keys, distribution, comparatorName);
+                        }
+                        catch (RuntimeException e) {
+                            System.out.printf("%-52s %9d %-10s %-8s failed: %s%n",
+                                c.name, size, distribution, comparatorName, e);
+                        }
+                    }
+                }
+            }
+        }
+        for (ThreadCase c : threadCases()) {
+            if (!filter.matcher(c.name).find()) continue;
+            for (int size : sizes)
+                for (String distribution : distributions) {
+                    Integer[] keys = keys(distribution, size, 42);
+                    for (int threads : threadCounts)
+                        if (threads >= c.minThreads && threads <= c.maxThreads)
+                            runThreads(c, keys, distribution, threads);
+                }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// HeapPriorityQueue behind a ReentrantLock with notEmpty/notFull conditions for worker pools.
+// Every insert signals a single waiting consumer, and since there are no synchronized blocks
+// virtual-thread consumers unmount while they wait instead of pinning a carrier.
+public class BlockingPriorityQueue<K, V> implements PriorityQueue<K, V>
+{
+    private final HeapPriorityQueue<K, V> heap;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    public BlockingPriorityQueue() { this(Integer.MAX_VALUE); }
+
+    public BlockingPriorityQueue(int capacity) { this(capacity, new DefaultComparator<K>()); }
+
+    public BlockingPriorityQueue(int capacity, Comparator<K> comp) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        this.capacity = capacity;
+        heap = new HeapPriorityQueue<>(comp);
+    }
+
+    public int capacity() { return capacity; }
+
+    public int size() {
+        lock.lock();
+        try { return heap.size(); }
+        finally { lock.unlock(); }
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    // Caller holds the lock and has checked there is room
+    private Entry<K, V> enqueue(K key, V value) {
+        Entry<K, V> newest = heap.insert(key, value);
+        notEmpty.signal();
+        return newest;
+    }
+
+    // Caller holds the lock and has checked the heap is not empty
+    private Entry<K, V> dequeue() {
+        Entry<K, V> answer = heap.removeMin();
+        if (capacity != Integer.MAX_VALUE)
+            notFull.signal();
+        return answer;
+    }
+
+    // Throws if the queue is at capacity; see offer and put for the other behaviours
+    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+        Entry<K, V> newest = offer(key, value);
+        if (newest == null) throw new IllegalStateException("Queue is full");
+        return newest;
+    }
+
+    // Returns null instead of waiting if the queue is at capacity
+    public Entry<K, V> offer(K key, V value) throws IllegalArgumentException {
+        lock.lock();
+        try {
+            if (heap.size() >= capacity) return null;
+            return enqueue(key, value);
+        }
+        finally { lock.unlock(); }
+    }
+
+    // Waits up to timeout for room; returns null if there was none
+    public Entry<K, V> offer(K key, V value, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (heap.size() >= capacity) {
+                if (nanos <= 0) return null;
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return enqueue(key, value);
+        }
+        finally { lock.unlock(); }
+    }
+
+    // Waits as long as it takes for room
+    public Entry<K, V> put(K key, V value) throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (heap.size() >= capacity)
+                notFull.await();
+            return enqueue(key, value);
+        }
+        finally { lock.unlock(); }
+    }
+
+    public Entry<K, V> min() {
+        lock.lock();
+        try { return heap.min(); }
+        finally { lock.unlock(); }
+    }
+
+    // Non-blocking: null if the queue is empty
+    public Entry<K, V> removeMin() {
+        lock.lock();
+        try { return heap.isEmpty() ? null : dequeue(); }
+        finally { lock.unlock(); }
+    }
+
+    public Entry<K, V> take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (heap.isEmpty())
+                notEmpty.await();
+            return dequeue();
+        }
+        finally { lock.unlock(); }
+    }
+
+    // Waits up to timeout for an entry; returns null if none arrived
+    public Entry<K, V> poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (heap.isEmpty()) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        }
+        finally { lock.unlock(); }
+    }
+
+    // Moves up to max smallest entries into c, smallest first, and returns how many moved
+    public int drainTo(Collection<? super Entry<K, V>> c, int max) {
+        List<Entry<K, V>> batch;
+        lock.lock();
+        try {
+            batch = heap.removeMin(max);
+            if (capacity != Integer.MAX_VALUE)
+                for (int i = 0; i < batch.size(); i++)
+                    notFull.signal();
+        }
+        finally { lock.unlock(); }
+        c.addAll(batch);
+        return batch.size();
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        BlockingPriorityQueue<Integer, String> jobs = new BlockingPriorityQueue<>(1024);
+        AtomicInteger done = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+
+        // Ten thousand parked consumers cost almost nothing as virtual threads
+        for (int i = 0; i < 10_000; i++)
+            workers.add(Thread.ofVirtual().start(() -> {
+                try {
+                    jobs.take();
+                    done.incrementAndGet();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+
+        for (int i = 0; i < 10_000; i++)
+            jobs.put(i % 100, "job " + i);
+
+        for (Thread worker : workers)
+            worker.join();
+        System.out.println(done.get() + " jobs taken, " + jobs.size() + " left");
+    }
+}
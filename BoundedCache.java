@@ -0,0 +1,273 @@
+import java.util.ArrayList;
+
+// Size-bounded cache on the Map interface. Entries sit in LinkedPositionalLists ordered by
+// recency, found through a ProbeHashMap index, so hits and evictions are O(1).
+//
+// LRU evicts the least recently used entry. TINY_LFU puts new entries in a small LRU window
+// (1% of the bound); an entry leaving the window only displaces the main region's LRU
+// victim if a count-min sketch of recent accesses says it was used more often, otherwise
+// the newcomer is the one evicted. This keeps one-hit keys from flushing popular ones.
+//
+// The bound is on total weight, one per entry unless a Weigher is given. Explicit removes
+// and replaced values are not reported to the eviction listener. Null keys are not supported.
+public class BoundedCache<K, V> extends AbstractMap<K, V>
+{
+    public enum Policy { LRU, TINY_LFU }
+
+    public interface Weigher<K, V> {
+        int weigh(K key, V value);
+    }
+
+    public interface EvictionListener<K, V> {
+        void onEviction(K key, V value);
+    }
+
+    private static class CacheEntry<K, V> extends MapEntry<K, V> {
+        int weight;
+        boolean inWindow;
+        CacheEntry(K key, V value, int weight) {
+            super(key, value);
+            this.weight = weight;
+        }
+    }
+
+    private final LinkedPositionalList<Entry<K, V>> window = new LinkedPositionalList<>();
+    private final LinkedPositionalList<Entry<K, V>> main = new LinkedPositionalList<>();
+    private final ProbeHashMap<K, Position<Entry<K, V>>> index = new ProbeHashMap<>();
+    private final Policy policy;
+    private final long maxWeight;
+    private final long windowMax;
+    private final Weigher<? super K, ? super V> weigher;
+    private final EvictionListener<? super K, ? super V> listener;
+    private final FrequencySketch sketch;
+
+    private long windowWeight = 0;
+    private long mainWeight = 0;
+    private long hits = 0, misses = 0, evictions = 0;
+
+    public BoundedCache(long maxSize) { this(maxSize, Policy.LRU, null, null); }
+
+    public BoundedCache(long maxSize, Policy policy) { this(maxSize, policy, null, null); }
+
+    // weigher and listener may be null
+    public BoundedCache(long maxWeight, Policy policy, Weigher<? super K, ? super V> weigher,
+                        EvictionListener<? super K, ? super V> listener) {
+        if (maxWeight < 1) throw new IllegalArgumentException("Maximum weight must be positive");
+        this.policy = policy;
+        this.maxWeight = maxWeight;
+        this.weigher = weigher;
+        this.listener = listener;
+        if (policy == Policy.TINY_LFU) {
+            windowMax = Math.max(1, maxWeight / 100);
+            sketch = new FrequencySketch((int) Math.min(maxWeight, 1 << 22));
+        } else {
+            windowMax = 0;
+            sketch = null;
+        }
+    }
+
+    public int size() { return index.size(); }
+
+    public long weight() { return windowWeight + mainWeight; }
+
+    public long hits() { return hits; }
+
+    public long misses() { return misses; }
+
+    public long evictions() { return evictions; }
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    private int weigh(K key, V value) {
+        int w = weigher == null ? 1 : weigher.weigh(key, value);
+        if (w < 0) throw new IllegalArgumentException("Negative weight");
+        return w;
+    }
+
+    private LinkedPositionalList<Entry<K, V>> listOf(CacheEntry<K, V> e) { return e.inWindow ? window : main; }
+
+    // Counts as a hit or miss and refreshes the entry's recency
+    public V get(K key) {
+        Position<Entry<K, V>> pos = index.get(key);
+        if (sketch != null) sketch.increment(key);
+        if (pos == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        CacheEntry<K, V> e = (CacheEntry<K, V>) pos.getElement();
+        listOf(e).moveToLast(pos);
+        return e.getValue();
+    }
+
+    public V put(K key, V value) {
+        int w = weigh(key, value);
+        if (w > maxWeight) {
+            // Could never fit: evict it at once instead of letting it flush the other entries
+            V old = remove(key);
+            evicted(new CacheEntry<>(key, value, w));
+            return old;
+        }
+        Position<Entry<K, V>> pos = index.get(key);
+        if (sketch != null) sketch.increment(key);
+        if (pos != null) {
+            CacheEntry<K, V> e = (CacheEntry<K, V>) pos.getElement();
+            if (e.inWindow) windowWeight += w - e.weight;
+            else mainWeight += w - e.weight;
+            e.weight = w;
+            listOf(e).moveToLast(pos);
+            V old = e.setValue(value);
+            evict();
+            return old;
+        }
+        CacheEntry<K, V> e = new CacheEntry<>(key, value, w);
+        if (policy == Policy.TINY_LFU) {
+            e.inWindow = true;
+            index.put(key, window.addLast(e));
+            windowWeight += w;
+        } else {
+            index.put(key, main.addLast(e));
+            mainWeight += w;
+        }
+        evict();
+        return null;
+    }
+
+    public V remove(K key) {
+        Position<Entry<K, V>> pos = index.remove(key);
+        if (pos == null) return null;
+        CacheEntry<K, V> e = (CacheEntry<K, V>) pos.getElement();
+        if (e.inWindow) windowWeight -= e.weight;
+        else mainWeight -= e.weight;
+        return listOf(e).remove(pos).getValue();
+    }
+
+    // Moves window overflow into the main region through the admission filter, then trims
+    // the main region until the total weight fits
+    private void evict() {
+        while (windowWeight > windowMax) {
+            Position<Entry<K, V>> pos = window.first();
+            CacheEntry<K, V> candidate = (CacheEntry<K, V>) window.remove(pos);
+            windowWeight -= candidate.weight;
+            candidate.inWindow = false;
+            boolean admitted = true;
+            while (weight() + candidate.weight > maxWeight && !main.isEmpty()) {
+                CacheEntry<K, V> victim = (CacheEntry<K, V>) main.first().getElement();
+                if (sketch.frequency(candidate.getKey()) <= sketch.frequency(victim.getKey())) {
+                    admitted = false;
+                    break;
+                }
+                evictFromMain(main.first());
+            }
+            if (admitted && weight() + candidate.weight <= maxWeight) {
+                index.put(candidate.getKey(), main.addLast(candidate));
+                mainWeight += candidate.weight;
+            } else {
+                index.remove(candidate.getKey());
+                evicted(candidate);
+            }
+        }
+        while (weight() > maxWeight && !main.isEmpty())
+            evictFromMain(main.first());
+    }
+
+    private void evictFromMain(Position<Entry<K, V>> pos) {
+        CacheEntry<K, V> e = (CacheEntry<K, V>) main.remove(pos);
+        mainWeight -= e.weight;
+        index.remove(e.getKey());
+        evicted(e);
+    }
+
+    private void evicted(CacheEntry<K, V> e) {
+        evictions++;
+        if (listener != null) listener.onEviction(e.getKey(), e.getValue());
+    }
+
+    // Snapshot, main region first, each from least to most recently used
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> snapshot = new ArrayList<>(size());
+        for (Entry<K, V> e : main) snapshot.add(e);
+        for (Entry<K, V> e : window) snapshot.add(e);
+        return snapshot;
+    }
+
+    public static void main(String[] args)
+    {
+        BoundedCache<String, String> cache = new BoundedCache<>(3, Policy.LRU, null,
+            (k, v) -> System.out.println("evicted " + k));
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.get("a");
+        cache.put("d", "4");    // evicts b, the least recently used
+        for (String key : cache.keySet()) System.out.print(key + " ");
+        System.out.println();
+        System.out.printf("hits %d, misses %d, evictions %d%n", cache.hits(), cache.misses(), cache.evictions());
+    }
+}
+
+// Count-min sketch of 4-bit counters, four per key, packed sixteen to a long. Once the
+// number of increments reaches ten times the width every counter is halved, so old
+// popularity fades.
+class FrequencySketch
+{
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int widthMask;
+    private final int sampleSize;
+    private int additions = 0;
+
+    FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        table = new long[4 * width / 16];
+        widthMask = width - 1;
+        sampleSize = 10 * width;
+    }
+
+    private static int spread(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // Counter number for row i
+    private int counter(int h, int i) {
+        long hash = (h + SEEDS[i]) * SEEDS[i];
+        hash += hash >>> 32;
+        return i * (widthMask + 1) + ((int) hash & widthMask);
+    }
+
+    private int get(int counter) {
+        return (int) (table[counter >>> 4] >>> ((counter & 15) << 2)) & 15;
+    }
+
+    void increment(Object key) {
+        int h = spread(key);
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            int c = counter(h, i);
+            if (get(c) < 15) {
+                table[c >>> 4] += 1L << ((c & 15) << 2);
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            for (int i = 0; i < table.length; i++)
+                table[i] = (table[i] >>> 1) & RESET_MASK;
+            additions /= 2;
+        }
+    }
+
+    int frequency(Object key) {
+        int h = spread(key);
+        int min = 15;
+        for (int i = 0; i < 4; i++)
+            min = Math.min(min, get(counter(h, i)));
+        return min;
+    }
+}
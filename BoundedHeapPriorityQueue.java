@@ -0,0 +1,90 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+// Keeps only the capacity greatest keys seen so far. The root is the smallest kept key,
+// so a new key is either rejected after one compare or replaces the root with one downheap.
+// The heap is binary unless an arity is given.
+public class BoundedHeapPriorityQueue<K, V> extends ArrayHeapPriorityQueue<K, V>
+{
+    // Preallocated up front; a larger bound grows the list on demand
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int capacity;
+    private final int arity;
+
+    public BoundedHeapPriorityQueue(int capacity) { this(capacity, 2, new DefaultComparator<K>()); }
+
+    public BoundedHeapPriorityQueue(int capacity, Comparator<K> comp) { this(capacity, 2, comp); }
+
+    public BoundedHeapPriorityQueue(int capacity, int arity, Comparator<K> comp) {
+        super(comp);
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive");
+        if (arity < 2) throw new IllegalArgumentException("Arity must be at least 2");
+        this.capacity = capacity;
+        this.arity = arity;
+        heap.ensureCapacity(Math.min(capacity, INITIAL_CAPACITY));
+    }
+
+    protected int parent(int j) { return (j - 1) / arity; }
+
+    protected int firstChild(int j) { return arity * j + 1; }
+
+    protected int arity() { return arity; }
+
+    public int capacity() { return capacity; }
+
+    public boolean isFull() { return heap.size() == capacity; }
+
+    // Returns null if the queue is full and key is not greater than the smallest kept key
+    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+        if (heap.size() < capacity)
+            return super.insert(key, value);
+        checkKey(key);
+        if (compareKeys(key, heap.get(0).getKey()) <= 0)
+            return null;
+        Entry<K, V> newest = createEntry(key, value);
+        heap.set(0, newest);
+        downHeap(0);
+        return newest;
+    }
+
+    public void insertAll(K[] keys, V[] values) throws IllegalArgumentException {
+        for (int j = 0; j < Math.min(keys.length, values.length); j++)
+            insert(keys[j], values[j]);
+    }
+
+    public void insertAll(Collection<? extends Entry<K, V>> entries) throws IllegalArgumentException {
+        for (Entry<K, V> e : entries)
+            insert(e.getKey(), e.getValue());
+    }
+
+    // Empties the queue and returns its entries greatest key first
+    public List<Entry<K, V>> drainSorted() {
+        List<Entry<K, V>> result = new ArrayList<>(heap.size());
+        while (!heap.isEmpty())
+            result.add(removeMin());
+        Collections.reverse(result);
+        return result;
+    }
+
+    public static void main(String[] args)
+    {
+        BoundedHeapPriorityQueue<Integer, String> best = new BoundedHeapPriorityQueue<>(5);
+
+        for (int i = 0; i < 1_000_000; i++)
+            best.insert((i * 7919) % 1_000_003, "item " + i);
+
+        for (Entry<Integer, String> e : best.drainSorted())
+            System.out.println(e.getKey() + " " + e.getValue());
+    }
+}
+
+class BoundedTernaryHeapPriorityQueue<K, V> extends BoundedHeapPriorityQueue<K, V>
+{
+    public BoundedTernaryHeapPriorityQueue(int capacity) { super(capacity, 3, new DefaultComparator<K>()); }
+
+    public BoundedTernaryHeapPriorityQueue(int capacity, Comparator<K> comp) { super(capacity, 3, comp); }
+}
@@ -0,0 +1,149 @@
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Priority queue sharded over several HeapPriorityQueues, each behind its own lock.
+// Inserts go to a random shard. In RELAXED mode removeMin samples two shards and pops the
+// smaller root (a multi-queue: the result is close to, but not always, the global minimum).
+// In STRICT mode it scans the published roots without locking, locks only the shard with the
+// smallest one, and pops it if that root is still there (or smaller), retrying otherwise.
+public class ConcurrentPriorityQueue<K, V> implements PriorityQueue<K, V>
+{
+    public enum Mode { STRICT, RELAXED }
+
+    private static class Shard<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        final HeapPriorityQueue<K, V> heap;
+        volatile Entry<K, V> min;   // republished after every change, read without the lock
+
+        Shard(Comparator<K> comp) { heap = new HeapPriorityQueue<>(comp); }
+
+        void publish() { min = heap.min(); }
+    }
+
+    private final Shard<K, V>[] shards;
+    private final Comparator<K> comp;
+    private final Mode mode;
+    private final LongAdder size = new LongAdder();
+
+    public ConcurrentPriorityQueue() { this(Mode.RELAXED); }
+
+    public ConcurrentPriorityQueue(Mode mode) {
+        this(mode, 2 * Runtime.getRuntime().availableProcessors(), new DefaultComparator<K>());
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public ConcurrentPriorityQueue(Mode mode, int shardCount, Comparator<K> comp) {
+        if (shardCount < 1) throw new IllegalArgumentException("Shard count must be positive");
+        this.mode = mode;
+        this.comp = comp;
+        shards = (Shard<K, V>[]) new Shard<?, ?>[shardCount];
+        for (int i = 0; i < shardCount; i++)
+            shards[i] = new Shard<>(comp);
+    }
+
+    public Mode mode() { return mode; }
+
+    public int size() { return (int) size.sum(); }
+
+    public boolean isEmpty() { return size.sum() == 0; }
+
+    private int compare(Entry<K, V> a, Entry<K, V> b) {
+        return comp.compare(a.getKey(), b.getKey());
+    }
+
+    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Shard<K, V> shard = shards[random.nextInt(shards.length)];
+        // Prefer an uncontended shard, but block on one after a round of misses
+        int attempts = 0;
+        while (!shard.lock.tryLock()) {
+            if (++attempts == shards.length) {
+                shard.lock.lock();
+                break;
+            }
+            shard = shards[random.nextInt(shards.length)];
+        }
+        try {
+            Entry<K, V> newest = shard.heap.insert(key, value);
+            shard.publish();
+            size.increment();
+            return newest;
+        }
+        finally {
+            shard.lock.unlock();
+        }
+    }
+
+    // Smallest published root over all shards; a snapshot that may already be stale
+    public Entry<K, V> min() {
+        Entry<K, V> best = null;
+        for (Shard<K, V> shard : shards) {
+            Entry<K, V> candidate = shard.min;
+            if (candidate != null && (best == null || compare(candidate, best) < 0))
+                best = candidate;
+        }
+        return best;
+    }
+
+    public Entry<K, V> removeMin() {
+        if (mode == Mode.RELAXED && shards.length > 1) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int attempt = 0; attempt < 2 * shards.length; attempt++) {
+                Shard<K, V> a = shards[random.nextInt(shards.length)];
+                Shard<K, V> b = shards[random.nextInt(shards.length)];
+                Entry<K, V> minA = a.min;
+                Entry<K, V> minB = b.min;
+                if (minA == null && minB == null) {
+                    if (isEmpty()) return null;
+                    continue;
+                }
+                Shard<K, V> shard = (minB == null || (minA != null && compare(minA, minB) <= 0)) ? a : b;
+                if (!shard.lock.tryLock()) continue;
+                try {
+                    Entry<K, V> answer = shard.heap.removeMin();
+                    if (answer != null) {
+                        shard.publish();
+                        size.decrement();
+                        return answer;
+                    }
+                }
+                finally {
+                    shard.lock.unlock();
+                }
+            }
+            // Sampling kept missing (nearly empty or heavily contended): fall back to a full scan
+        }
+        return removeMinStrict();
+    }
+
+    private Entry<K, V> removeMinStrict() {
+        while (true) {
+            Shard<K, V> best = null;
+            Entry<K, V> bestMin = null;
+            for (Shard<K, V> shard : shards) {
+                Entry<K, V> candidate = shard.min;
+                if (candidate != null && (bestMin == null || compare(candidate, bestMin) < 0)) {
+                    best = shard;
+                    bestMin = candidate;
+                }
+            }
+            if (best == null) return null;
+            best.lock.lock();
+            try {
+                // Another consumer may have taken the root since the scan
+                Entry<K, V> root = best.heap.min();
+                if (root != null && compare(root, bestMin) <= 0) {
+                    Entry<K, V> answer = best.heap.removeMin();
+                    best.publish();
+                    size.decrement();
+                    return answer;
+                }
+            }
+            finally {
+                best.lock.unlock();
+            }
+        }
+    }
+}
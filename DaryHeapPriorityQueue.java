@@ -0,0 +1,47 @@
+import java.util.Comparator;
+
+public class DaryHeapPriorityQueue<K, V> extends ArrayHeapPriorityQueue<K, V>
+{
+    protected final int arity;
+
+    public DaryHeapPriorityQueue(int arity) {
+        super();
+        this.arity = checkArity(arity);
+    }
+
+    public DaryHeapPriorityQueue(int arity, Comparator<K> comp) {
+        super(comp);
+        this.arity = checkArity(arity);
+    }
+
+    public DaryHeapPriorityQueue(int arity, K[] keys, V[] values) {
+        this(arity, new DefaultComparator<K>(), keys, values);
+    }
+
+    public DaryHeapPriorityQueue(int arity, Comparator<K> comp, K[] keys, V[] values) {
+        super(comp);
+        this.arity = checkArity(arity);
+        for (int j = 0; j < Math.min(keys.length, values.length); j++)
+            heap.add(new PQEntry<>(keys[j], values[j]));
+        buildHeap(heap, arity, comp);
+    }
+
+    private static int checkArity(int arity) {
+        if (arity < 2) throw new IllegalArgumentException("Arity must be at least 2");
+        return arity;
+    }
+
+    public int arity() { return arity; }
+
+    protected int parent(int j) { return (j - 1) / arity; }
+
+    protected int firstChild(int j) { return arity * j + 1; }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        // Arity is picked per workload; run the Benchmark cases to compare
+        Benchmark.main(new String[] {
+            "^DaryHeapPriorityQueue\\(\\d+\\)\\.(heapify|removeMin)$", "1000000", "random", "default"
+        });
+    }
+}
@@ -0,0 +1,317 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+// Binary heap with keys and values in two plain arrays instead of an ArrayList of entries,
+// so sifting only touches the key array. Entries are created only when a caller asks for one.
+public class FlatHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
+{
+    private static final int DEFAULT_CAPACITY = 16;
+
+    protected Object[] keys;
+    protected Object[] values;
+    protected int size = 0;
+
+    public FlatHeapPriorityQueue() {
+        super();
+        keys = new Object[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+    }
+
+    public FlatHeapPriorityQueue(Comparator<K> comp) {
+        super(comp);
+        keys = new Object[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+    }
+
+    public FlatHeapPriorityQueue(K[] keys, V[] values) {
+        this(new DefaultComparator<K>(), keys, values);
+    }
+
+    public FlatHeapPriorityQueue(Comparator<K> comp, K[] keys, V[] values) {
+        super(comp);
+        size = Math.min(keys.length, values.length);
+        this.keys = Arrays.copyOf(keys, Math.max(size, DEFAULT_CAPACITY), Object[].class);
+        this.values = Arrays.copyOf(values, this.keys.length, Object[].class);
+        buildHeap(this.keys, this.values, size, comp);
+    }
+
+    // heapify for the constructor, which must not call anything a subclass can override
+    @SuppressWarnings({"unchecked"})
+    private static <K> void buildHeap(Object[] keys, Object[] values, int size, Comparator<K> comp) {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            int j = i;
+            K key = (K) keys[j];
+            Object value = values[j];
+            while (j < size >>> 1) {
+                int c = 2 * j + 1;
+                if (c + 1 < size && comp.compare((K) keys[c + 1], (K) keys[c]) < 0) c++;
+                if (comp.compare(key, (K) keys[c]) <= 0) break;
+                keys[j] = keys[c];
+                values[j] = values[c];
+                j = c;
+            }
+            keys[j] = key;
+            values[j] = value;
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    private K key(int j) { return (K) keys[j]; }
+
+    public void ensureCapacity(int capacity) {
+        if (capacity > keys.length) {
+            int grown = Math.max(capacity, keys.length + (keys.length >> 1));
+            keys = Arrays.copyOf(keys, grown);
+            values = Arrays.copyOf(values, grown);
+        }
+    }
+
+    // Shrinks the arrays to the current size (on demand, never automatically)
+    public void trimToSize() {
+        int capacity = Math.max(size, 1);
+        if (capacity < keys.length) {
+            keys = Arrays.copyOf(keys, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+    }
+
+    // Moves the hole at j up until (key, value) fits, shifting parents down
+    protected void upHeap(int j, K key, Object value) {
+        while (j > 0) {
+            int p = (j - 1) >>> 1;
+            K parentKey = key(p);
+            if (compareKeys(key, parentKey) >= 0) break;
+            keys[j] = parentKey;
+            values[j] = values[p];
+            j = p;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    // Moves the hole at j down until (key, value) fits, shifting the smaller child up
+    protected void downHeap(int j, K key, Object value) {
+        int half = size >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            K childKey = key(c);
+            int r = c + 1;
+            if (r < size && compareKeys(key(r), childKey) < 0) {
+                c = r;
+                childKey = key(r);
+            }
+            if (compareKeys(key, childKey) <= 0) break;
+            keys[j] = childKey;
+            values[j] = values[c];
+            j = c;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    protected void heapify() {
+        for (int j = (size >>> 1) - 1; j >= 0; j--)
+            downHeap(j, key(j), values[j]);
+    }
+
+    public int size() { return size; }
+
+    public K peekMinKey() {
+        if (size == 0) return null;
+        return key(0);
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V peekMinValue() {
+        if (size == 0) return null;
+        return (V) values[0];
+    }
+
+    public Entry<K, V> min() {
+        if (size == 0) return null;
+        return new PQEntry<>(peekMinKey(), peekMinValue());
+    }
+
+    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+        offer(key, value);
+        return new PQEntry<>(key, value);
+    }
+
+    // insert without materializing an Entry
+    public void offer(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        ensureCapacity(size + 1);
+        upHeap(size++, key, value);
+    }
+
+    public void insertAll(K[] keys, V[] values) throws IllegalArgumentException {
+        int n = Math.min(keys.length, values.length);
+        for (int j = 0; j < n; j++)
+            checkKey(keys[j]);
+        ensureCapacity(size + n);
+        System.arraycopy(keys, 0, this.keys, size, n);
+        System.arraycopy(values, 0, this.values, size, n);
+        int oldSize = size;
+        size += n;
+        restoreAfterAppend(oldSize);
+    }
+
+    public void insertAll(Collection<? extends Entry<K, V>> entries) throws IllegalArgumentException {
+        for (Entry<K, V> e : entries)
+            checkKey(e.getKey());
+        ensureCapacity(size + entries.size());
+        int oldSize = size;
+        for (Entry<K, V> e : entries) {
+            keys[size] = e.getKey();
+            values[size++] = e.getValue();
+        }
+        restoreAfterAppend(oldSize);
+    }
+
+    // Moves every entry of other into this queue, leaving other empty
+    public void merge(PriorityQueue<K, V> other) throws IllegalArgumentException {
+        if (other == this) return;
+        if (other instanceof FlatHeapPriorityQueue) {
+            FlatHeapPriorityQueue<K, V> h = (FlatHeapPriorityQueue<K, V>) other;
+            ensureCapacity(size + h.size);
+            System.arraycopy(h.keys, 0, keys, size, h.size);
+            System.arraycopy(h.values, 0, values, size, h.size);
+            int oldSize = size;
+            size += h.size;
+            Arrays.fill(h.keys, 0, h.size, null);
+            Arrays.fill(h.values, 0, h.size, null);
+            h.size = 0;
+            restoreAfterAppend(oldSize);
+        }
+        else {
+            ArrayList<Entry<K, V>> entries = new ArrayList<>(other.size());
+            while (!other.isEmpty()) entries.add(other.removeMin());
+            insertAll(entries);
+        }
+    }
+
+    protected void restoreAfterAppend(int oldSize) {
+        if (preferHeapify(oldSize, size - oldSize))
+            heapify();
+        else
+            for (int j = oldSize; j < size; j++)
+                upHeap(j, key(j), values[j]);
+    }
+
+    // Removes and returns up to k smallest entries, smallest first.
+    // The k smallest form a subtree at the root; they are found with a small index heap over
+    // that subtree's frontier, without touching the main heap. The holes they leave are then
+    // filled from the end, deepest first: each hole sinks to a leaf along the smaller children
+    // (one compare per level instead of a full downheap) and the moved entry climbs back up.
+    // A batch that is large relative to the heap is repaired by one heapify instead.
+    @SuppressWarnings({"unchecked"})
+    public List<Entry<K, V>> removeMin(int k) {
+        k = Math.min(k, size);
+        List<Entry<K, V>> result = new ArrayList<>(Math.max(k, 0));
+        if (k <= 0) return result;
+
+        int[] holes = new int[k];
+        int[] frontier = new int[k + 1];
+        int frontierSize = 1;
+        for (int i = 0; i < k; i++) {
+            int j = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            frontierDown(frontier, frontierSize);
+            result.add(new PQEntry<>(key(j), (V) values[j]));
+            holes[i] = j;
+            for (int c = 2 * j + 1; c <= 2 * j + 2 && c < size; c++) {
+                frontier[frontierSize++] = c;
+                frontierUp(frontier, frontierSize);
+            }
+        }
+
+        Arrays.sort(holes);
+        boolean rebuild = preferHeapify(size - k, k);
+        for (int i = k - 1; i >= 0; i--) {
+            int j = holes[i];
+            int last = --size;
+            K lastKey = key(last);
+            Object lastValue = values[last];
+            keys[last] = null;
+            values[last] = null;
+            if (j < last) {
+                if (rebuild) {
+                    keys[j] = lastKey;
+                    values[j] = lastValue;
+                }
+                else
+                    sinkHole(j, lastKey, lastValue);
+            }
+        }
+        if (rebuild) heapify();
+        return result;
+    }
+
+    // Binary heap over heap indices, ordered by the keys they point at
+    private void frontierUp(int[] frontier, int n) {
+        int j = n - 1;
+        int index = frontier[j];
+        while (j > 0) {
+            int p = (j - 1) >>> 1;
+            if (compareKeys(key(index), key(frontier[p])) >= 0) break;
+            frontier[j] = frontier[p];
+            j = p;
+        }
+        frontier[j] = index;
+    }
+
+    private void frontierDown(int[] frontier, int n) {
+        if (n == 0) return;
+        int j = 0;
+        int index = frontier[0];
+        while (2 * j + 1 < n) {
+            int c = 2 * j + 1;
+            if (c + 1 < n && compareKeys(key(frontier[c + 1]), key(frontier[c])) < 0) c++;
+            if (compareKeys(key(index), key(frontier[c])) <= 0) break;
+            frontier[j] = frontier[c];
+            j = c;
+        }
+        frontier[j] = index;
+    }
+
+    // Sinks the hole at j to a leaf along the smaller children, then lets (key, value)
+    // climb back up from there. Entries from the end of the heap are large, so the climb is short.
+    private void sinkHole(int j, K key, Object value) {
+        while (2 * j + 1 < size) {
+            int c = 2 * j + 1;
+            if (c + 1 < size && compareKeys(key(c + 1), key(c)) < 0) c++;
+            keys[j] = keys[c];
+            values[j] = values[c];
+            j = c;
+        }
+        upHeap(j, key, value);
+    }
+
+    // Moves up to max smallest entries into c, smallest first, and returns how many moved
+    public int drainTo(Collection<? super Entry<K, V>> c, int max) {
+        List<Entry<K, V>> batch = removeMin(max);
+        c.addAll(batch);
+        return batch.size();
+    }
+
+    public V removeMinValue() {
+        if (size == 0) return null;
+        V answer = peekMinValue();
+        size--;
+        K lastKey = key(size);
+        Object lastValue = values[size];
+        keys[size] = null;
+        values[size] = null;
+        if (size > 0) downHeap(0, lastKey, lastValue);
+        return answer;
+    }
+
+    public Entry<K, V> removeMin() {
+        if (size == 0) return null;
+        K key = peekMinKey();
+        return new PQEntry<>(key, removeMinValue());
+    }
+}
@@ -0,0 +1,81 @@
+import java.util.Comparator;
+
+interface AdaptablePriorityQueue<K, V> extends PriorityQueue<K, V> {
+    void remove(Entry<K, V> entry) throws IllegalArgumentException;
+    void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException;
+    void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException;
+}
+
+public class HeapAdaptablePriorityQueue<K, V> extends HeapPriorityQueue<K, V>
+    implements AdaptablePriorityQueue<K, V>
+{
+    // Entry that remembers its current index in the heap array
+    protected static class AdaptablePQEntry<K, V> extends PQEntry<K, V> {
+        private int index;
+        public AdaptablePQEntry(K key, V value, int j) {
+            super(key, value);
+            index = j;
+        }
+        public int getIndex() { return index; }
+        public void setIndex(int j) { index = j; }
+    }
+
+    public HeapAdaptablePriorityQueue() { super(); }
+
+    public HeapAdaptablePriorityQueue(Comparator<K> comp) { super(comp); }
+
+    // Checks that the entry is one of ours and is still in the heap
+    protected AdaptablePQEntry<K, V> validate(Entry<K, V> entry) throws IllegalArgumentException {
+        if (!(entry instanceof AdaptablePQEntry))
+            throw new IllegalArgumentException("Invalid entry");
+        AdaptablePQEntry<K, V> locator = (AdaptablePQEntry<K, V>) entry;
+        int j = locator.getIndex();
+        if (j < 0 || j >= heap.size() || heap.get(j) != locator)
+            throw new IllegalArgumentException("Invalid entry");
+        return locator;
+    }
+
+    protected void swap(int i, int j) {
+        super.swap(i, j);
+        ((AdaptablePQEntry<K, V>) heap.get(i)).setIndex(i);
+        ((AdaptablePQEntry<K, V>) heap.get(j)).setIndex(j);
+    }
+
+    // Restores the heap property for the entry at j after its key changed
+    protected void bubble(int j) {
+        if (j > 0 && compare(heap.get(j), heap.get(parent(j))) < 0)
+            upHeap(j);
+        else
+            downHeap(j);
+    }
+
+    // Called right before the entry is appended, so its index is the current size
+    protected Entry<K, V> createEntry(K key, V value) {
+        return new AdaptablePQEntry<>(key, value, heap.size());
+    }
+
+    public void remove(Entry<K, V> entry) throws IllegalArgumentException {
+        AdaptablePQEntry<K, V> locator = validate(entry);
+        int j = locator.getIndex();
+        if (j == heap.size() - 1)
+            heap.remove(heap.size() - 1);
+        else {
+            swap(j, heap.size() - 1);
+            heap.remove(heap.size() - 1);
+            bubble(j);
+        }
+        locator.setIndex(-1);
+    }
+
+    public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+        AdaptablePQEntry<K, V> locator = validate(entry);
+        checkKey(key);
+        locator.setKey(key);
+        bubble(locator.getIndex());
+    }
+
+    public void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException {
+        AdaptablePQEntry<K, V> locator = validate(entry);
+        locator.setValue(value);
+    }
+}
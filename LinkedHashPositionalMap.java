@@ -0,0 +1,58 @@
+import java.util.Iterator;
+
+// Map that keeps UnsortedPositionalMap's LinkedPositionalList for iteration order, plus a
+// ProbeHashMap from key to list position so get/put/remove are O(1) instead of a list scan.
+// In insertion order (the default) updating a key keeps its place; in access order every
+// get or put of an existing key moves it to the end, so the first entry is the least recently used.
+// Null keys are not supported.
+public class LinkedHashPositionalMap<K, V> extends AbstractMap<K, V>
+{
+    private final LinkedPositionalList<Entry<K, V>> list = new LinkedPositionalList<>();
+    private final ProbeHashMap<K, Position<Entry<K, V>>> index = new ProbeHashMap<>();
+    private final boolean accessOrder;
+
+    public LinkedHashPositionalMap() { this(false); }
+
+    public LinkedHashPositionalMap(boolean accessOrder) { this.accessOrder = accessOrder; }
+
+    public int size() { return list.size(); }
+
+    public V get(K key) {
+        Position<Entry<K, V>> pos = index.get(key);
+        if (pos == null) return null;
+        if (accessOrder) list.moveToLast(pos);
+        return pos.getElement().getValue();
+    }
+
+    public V put(K key, V value) {
+        Position<Entry<K, V>> pos = index.get(key);
+        if (pos != null) {
+            if (accessOrder) list.moveToLast(pos);
+            return ((MapEntry<K, V>) pos.getElement()).setValue(value);
+        }
+        index.put(key, list.addLast(new MapEntry<>(key, value)));
+        return null;
+    }
+
+    public V remove(K key) {
+        Position<Entry<K, V>> pos = index.remove(key);
+        if (pos == null) return null;
+        return list.remove(pos).getValue();
+    }
+
+    // Oldest entry in iteration order (least recently used in access order), or null
+    public Entry<K, V> firstEntry() {
+        Position<Entry<K, V>> pos = list.first();
+        return pos == null ? null : pos.getElement();
+    }
+
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Entry<K, V>> entries = list.iterator();
+        public boolean hasNext() { return entries.hasNext(); }
+        public Entry<K, V> next() { return entries.next(); }
+        public void remove() { throw new UnsupportedOperationException("remove not supported"); }
+    }
+
+    // Live view in list order; the index would go stale if it allowed removal
+    public Iterable<Entry<K, V>> entrySet() { return EntryIterator::new; }
+}
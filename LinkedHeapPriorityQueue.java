@@ -265,7 +265,7 @@ abstract class AbstractTree<E> implements Tree<E> {
     public Iterable<Position<E>> breadthfirst() {
         List<Position<E>> snapshot = new ArrayList<>();
         if (!isEmpty()) {
-            Queue<Position<E>> fringe = new LinkedQueue<>();
+            Queue<Position<E>> fringe = new ArrayQueue<>();
             fringe.enqueue(root());
             while (!fringe.isEmpty()) {
                 Position<E> p = fringe.dequeue();
@@ -432,135 +432,70 @@ public class LinkedHeapPriorityQueue<K,V>
     extends LinkedBinaryTree<Entry<K,V>>
     implements PriorityQueue<K,V>
 {
-    private Comparator<K> comp;
-    Position<Entry<K,V>> root;
+    private final Comparator<K> comp;
 
-    public LinkedHeapPriorityQueue() { super(); }
+    public LinkedHeapPriorityQueue() { this(new DefaultComparator<K>()); }
 
     public LinkedHeapPriorityQueue(Comparator<K> _comp) {
         super();
         comp = _comp;
     }
 
-    public void swap(Position<Entry<K, V>> i, Position<Entry<K, V>> j)
-    {
-        if(i == j) return;
-        if(isRoot(j)) swap(j,i);
-        boolean iIsRoot = isRoot(i);
-
-        Position<Entry<K, V>> pi = parent(i);
-        Position<Entry<K, V>> li = right(i);
-        Position<Entry<K, V>> ri = left(i);
-
-        if (left(j) != null)
-            ((Node)(left(j))).setParent((Node)i);
-        if (right(j) != null)
-            ((Node)(right(j))).setParent((Node)i);
-        if (left(parent(j)) == j)
-            ((Node)(j)).setLeft((Node)i);
-        else
-            ((Node)(j)).setRight((Node)i);
-
-        ((Node)i).setParent((Node)parent(j));
-        ((Node)i).setLeft((Node)left(j));
-        ((Node)i).setRight((Node)right(j));
-
-        ((Node)j).setParent((Node)pi);
-        ((Node)j).setLeft((Node)li);
-        ((Node)j).setRight((Node)ri);
-
-        ((Node)li).setParent((Node)j);
-        ((Node)ri).setParent((Node)j);
-
-        if(!iIsRoot)
-        {
-            if (left(pi) == i)
-                ((Node) pi).setLeft((Node) j);
-            else
-                ((Node) pi).setRight((Node) j);
-        }
-        else
-            root = j;
-    }
-
-    public void upheap(Position<Entry<K, V>> p) {
-        while ( !isRoot(p) )
-        {
-            Position<Entry<K, V>> k = parent(p);
-            if (comp.compare(p.getElement().getKey(), k.getElement().getKey()) >= 0) break;
-
-            swap(p, k);
-            p = k;
-        }
+    // Node number n in level order, counting the root as 1: below the leading one bit,
+    // the bits of n spell the path down from the root (0 = left, 1 = right)
+    private Node<Entry<K,V>> nodeAt(int n) {
+        Node<Entry<K,V>> walk = root;
+        for (int bit = Integer.highestOneBit(n) >>> 1; bit > 0; bit >>>= 1)
+            walk = (n & bit) == 0 ? walk.getLeft() : walk.getRight();
+        return walk;
     }
 
-    public void downheap(Position<Entry<K, V>> p) {
-        if (left(p) == null)
-            return;
-
-        Position<Entry<K, V>> leftPosition = left(p);
-        Position<Entry<K, V>> small = leftPosition;
-
-        if (right(p) != null)
+    // Entries move between nodes; the nodes themselves are never relinked
+    private void upheap(Node<Entry<K,V>> p) {
+        Entry<K,V> moving = p.getElement();
+        while (p != root)
         {
-            Position<Entry<K, V>> rightPosition = right(p);
-            if (comp.compare(leftPosition.getElement().getKey(),
-                rightPosition.getElement().getKey()) > 0) small = rightPosition;
+            Node<Entry<K,V>> parent = p.getParent();
+            if (comp.compare(moving.getKey(), parent.getElement().getKey()) >= 0) break;
+            p.setElement(parent.getElement());
+            p = parent;
         }
-
-        if (comp.compare(small.getElement().getKey(), p.getElement().getKey()) >= 0) return;
-
-        swap(p, small);
-        p = small;
-
-        downheap(p);
+        p.setElement(moving);
     }
 
-    public ArrayList<Character> pathTo(int i) {
-        ArrayList<Character> arrayList = new ArrayList<>();
-        while (i > 0)
+    private void downheap(Node<Entry<K,V>> p) {
+        Entry<K,V> moving = p.getElement();
+        while (p.getLeft() != null)
         {
-            arrayList.addFirst((i--)%2==1? 'r' : 'l');
-            i/=2;
+            Node<Entry<K,V>> small = p.getLeft();
+            Node<Entry<K,V>> right = p.getRight();
+            if (right != null && comp.compare(small.getElement().getKey(), right.getElement().getKey()) > 0)
+                small = right;
+            if (comp.compare(small.getElement().getKey(), moving.getKey()) >= 0) break;
+            p.setElement(small.getElement());
+            p = small;
         }
-        return arrayList;
-    }
-
-    public Position<Entry<K, V>> getPositionAt(ArrayList<Character> list) {
-        Position<Entry<K,V>> walk = root();
-        for(Character c: list)
-            walk = c == 'l' ? this.left(walk) : this.right(walk);
-
-        return walk;
+        p.setElement(moving);
     }
 
     public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
-        // CheckKey
-        try
-        {
-            assert comp.compare(key, key) == 0;
+        try {
+            comp.compare(key, key);
         }
-        catch (Exception e)
-        {
+        catch (ClassCastException e) {
             throw new IllegalArgumentException("Incompatible key");
         }
-        // End CheckKey
 
-        Entry<K,V> newest = new AbstractPriorityQueue.PQEntry(key,value);
+        Entry<K,V> newest = new AbstractPriorityQueue.PQEntry<>(key, value);
 
-        if (size() == 0) {
+        if (isEmpty()) {
             addRoot(newest);
+            return newest;
         }
-        else {
-            Position<Entry<K, V>> freeNode = getPositionAt(pathTo(size() / 2));
-
-            if (size() % 2 == 0)
-                addRight(freeNode, newest);
-            else
-                addLeft(freeNode, newest);
-        }
-
-        upheap(getPositionAt(pathTo(size()-1)));
+        int n = size() + 1;
+        Node<Entry<K,V>> parent = nodeAt(n >>> 1);
+        Position<Entry<K,V>> added = (n & 1) == 0 ? addLeft(parent, newest) : addRight(parent, newest);
+        upheap(validate(added));
 
         return newest;
     }
@@ -572,11 +507,15 @@ public class LinkedHeapPriorityQueue<K,V>
 
     public Entry<K, V> removeMin()
     {
-        Entry<K,V> returnValue = min();
+        if (isEmpty()) return null;
+        Entry<K,V> returnValue = root.getElement();
 
-        swap(root, getPositionAt(pathTo(size())));
-        remove(getPositionAt(pathTo(size())));
-        downheap(root);
+        Node<Entry<K,V>> last = nodeAt(size());
+        if (last != root)
+            root.setElement(last.getElement());
+        remove(last);
+        if (!isEmpty())
+            downheap(root);
 
         return returnValue;
     }
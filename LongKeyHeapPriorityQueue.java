@@ -0,0 +1,322 @@
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+public class LongKeyHeapPriorityQueue<V> implements PriorityQueue<Long, V>
+{
+    protected long[] keys;
+    protected Object[] values;
+    protected int size = 0;
+
+    public LongKeyHeapPriorityQueue() { this(16); }
+
+    public LongKeyHeapPriorityQueue(int capacity) {
+        keys = new long[Math.max(capacity, 1)];
+        values = new Object[keys.length];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    private void grow() {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        values = Arrays.copyOf(values, keys.length);
+    }
+
+    // Primitive API: no boxing and no Entry objects
+    public void offer(long key, V value) {
+        if (size == keys.length) grow();
+        int j = size++;
+        while (j > 0) {   // move the hole up instead of swapping
+            int p = (j - 1) >>> 1;
+            long parentKey = keys[p];
+            if (key >= parentKey) break;
+            keys[j] = parentKey;
+            values[j] = values[p];
+            j = p;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    public long peekMinKey() throws IllegalStateException {
+        if (size == 0) throw new IllegalStateException("Priority queue is empty");
+        return keys[0];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V peekMinValue() {
+        if (size == 0) return null;
+        return (V) values[0];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V removeMinValue() {
+        if (size == 0) return null;
+        V answer = (V) values[0];
+        size--;
+        long lastKey = keys[size];
+        Object lastValue = values[size];
+        values[size] = null;
+        if (size > 0) downHeap(0, lastKey, lastValue);
+        return answer;
+    }
+
+    // Drops every entry whose value matches filter, then rebuilds the heap bottom-up in O(n)
+    @SuppressWarnings({"unchecked"})
+    public int removeIf(Predicate<? super V> filter) {
+        int kept = 0;
+        for (int j = 0; j < size; j++) {
+            if (filter.test((V) values[j])) continue;
+            keys[kept] = keys[j];
+            values[kept++] = values[j];
+        }
+        int removed = size - kept;
+        Arrays.fill(values, kept, size, null);
+        size = kept;
+        for (int j = (size >>> 1) - 1; j >= 0; j--)
+            downHeap(j, keys[j], values[j]);
+        return removed;
+    }
+
+    // Sifts the hole at j down and drops (key, value) into it
+    private void downHeap(int j, long key, Object value) {
+        int half = size >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            long childKey = keys[c];
+            int r = c + 1;
+            if (r < size && keys[r] < childKey) {
+                c = r;
+                childKey = keys[r];
+            }
+            if (key <= childKey) break;
+            keys[j] = childKey;
+            values[j] = values[c];
+            j = c;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    // PriorityQueue adapter for generic callers (boxes keys and allocates entries)
+    public Entry<Long, V> insert(Long key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Incompatible key");
+        offer(key.longValue(), value);
+        return new AbstractPriorityQueue.PQEntry<>(key, value);
+    }
+
+    public Entry<Long, V> min() {
+        if (size == 0) return null;
+        return new AbstractPriorityQueue.PQEntry<>(keys[0], peekMinValue());
+    }
+
+    public Entry<Long, V> removeMin() {
+        if (size == 0) return null;
+        long key = keys[0];
+        return new AbstractPriorityQueue.PQEntry<>(key, removeMinValue());
+    }
+}
+
+class IntKeyHeapPriorityQueue<V> implements PriorityQueue<Integer, V>
+{
+    protected int[] keys;
+    protected Object[] values;
+    protected int size = 0;
+
+    public IntKeyHeapPriorityQueue() { this(16); }
+
+    public IntKeyHeapPriorityQueue(int capacity) {
+        keys = new int[Math.max(capacity, 1)];
+        values = new Object[keys.length];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    private void grow() {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        values = Arrays.copyOf(values, keys.length);
+    }
+
+    // Primitive API: no boxing and no Entry objects
+    public void offer(int key, V value) {
+        if (size == keys.length) grow();
+        int j = size++;
+        while (j > 0) {   // move the hole up instead of swapping
+            int p = (j - 1) >>> 1;
+            int parentKey = keys[p];
+            if (key >= parentKey) break;
+            keys[j] = parentKey;
+            values[j] = values[p];
+            j = p;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    public int peekMinKey() throws IllegalStateException {
+        if (size == 0) throw new IllegalStateException("Priority queue is empty");
+        return keys[0];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V peekMinValue() {
+        if (size == 0) return null;
+        return (V) values[0];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V removeMinValue() {
+        if (size == 0) return null;
+        V answer = (V) values[0];
+        size--;
+        int lastKey = keys[size];
+        Object lastValue = values[size];
+        values[size] = null;
+        if (size > 0) downHeap(lastKey, lastValue);
+        return answer;
+    }
+
+    // Sifts the hole left at the root down and drops (key, value) into it
+    private void downHeap(int key, Object value) {
+        int j = 0;
+        int half = size >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            int childKey = keys[c];
+            int r = c + 1;
+            if (r < size && keys[r] < childKey) {
+                c = r;
+                childKey = keys[r];
+            }
+            if (key <= childKey) break;
+            keys[j] = childKey;
+            values[j] = values[c];
+            j = c;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    // PriorityQueue adapter for generic callers (boxes keys and allocates entries)
+    public Entry<Integer, V> insert(Integer key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Incompatible key");
+        offer(key.intValue(), value);
+        return new AbstractPriorityQueue.PQEntry<>(key, value);
+    }
+
+    public Entry<Integer, V> min() {
+        if (size == 0) return null;
+        return new AbstractPriorityQueue.PQEntry<>(keys[0], peekMinValue());
+    }
+
+    public Entry<Integer, V> removeMin() {
+        if (size == 0) return null;
+        int key = keys[0];
+        return new AbstractPriorityQueue.PQEntry<>(key, removeMinValue());
+    }
+}
+
+class DoubleKeyHeapPriorityQueue<V> implements PriorityQueue<Double, V>
+{
+    protected double[] keys;
+    protected Object[] values;
+    protected int size = 0;
+
+    public DoubleKeyHeapPriorityQueue() { this(16); }
+
+    public DoubleKeyHeapPriorityQueue(int capacity) {
+        keys = new double[Math.max(capacity, 1)];
+        values = new Object[keys.length];
+    }
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    private void grow() {
+        keys = Arrays.copyOf(keys, keys.length * 2);
+        values = Arrays.copyOf(values, keys.length);
+    }
+
+    // Primitive API: no boxing and no Entry objects
+    public void offer(double key, V value) {
+        if (Double.isNaN(key)) throw new IllegalArgumentException("Incompatible key");
+        if (size == keys.length) grow();
+        int j = size++;
+        while (j > 0) {   // move the hole up instead of swapping
+            int p = (j - 1) >>> 1;
+            double parentKey = keys[p];
+            if (key >= parentKey) break;
+            keys[j] = parentKey;
+            values[j] = values[p];
+            j = p;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    public double peekMinKey() throws IllegalStateException {
+        if (size == 0) throw new IllegalStateException("Priority queue is empty");
+        return keys[0];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V peekMinValue() {
+        if (size == 0) return null;
+        return (V) values[0];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V removeMinValue() {
+        if (size == 0) return null;
+        V answer = (V) values[0];
+        size--;
+        double lastKey = keys[size];
+        Object lastValue = values[size];
+        values[size] = null;
+        if (size > 0) downHeap(lastKey, lastValue);
+        return answer;
+    }
+
+    // Sifts the hole left at the root down and drops (key, value) into it
+    private void downHeap(double key, Object value) {
+        int j = 0;
+        int half = size >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            double childKey = keys[c];
+            int r = c + 1;
+            if (r < size && keys[r] < childKey) {
+                c = r;
+                childKey = keys[r];
+            }
+            if (key <= childKey) break;
+            keys[j] = childKey;
+            values[j] = values[c];
+            j = c;
+        }
+        keys[j] = key;
+        values[j] = value;
+    }
+
+    // PriorityQueue adapter for generic callers (boxes keys and allocates entries)
+    public Entry<Double, V> insert(Double key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Incompatible key");
+        offer(key.doubleValue(), value);
+        return new AbstractPriorityQueue.PQEntry<>(key, value);
+    }
+
+    public Entry<Double, V> min() {
+        if (size == 0) return null;
+        return new AbstractPriorityQueue.PQEntry<>(keys[0], peekMinValue());
+    }
+
+    public Entry<Double, V> removeMin() {
+        if (size == 0) return null;
+        double key = keys[0];
+        return new AbstractPriorityQueue.PQEntry<>(key, removeMinValue());
+    }
+}
@@ -0,0 +1,551 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+// Open-addressing maps keyed by primitives, with keys and values in flat arrays: no boxing,
+// no Node or Entry objects, and get/put/remove allocate nothing. A key of 0 marks an empty
+// slot, so the mapping for key 0 (if any) is kept in separate fields. Linear probing with
+// backward-shift deletion, doubling once the table is half full.
+// Iterate with a Cursor; asMap() adapts to the generic Map interface, boxing as it goes.
+public class LongObjectMap<V>
+{
+    private static final int MAX_CAPACITY = 1 << 29;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int shift;          // 64 - log2(capacity)
+    private int tableCount = 0;
+    private boolean hasZeroKey = false;
+    private V zeroValue;
+
+    public LongObjectMap() { this(MIN_CAPACITY); }
+
+    public LongObjectMap(int capacity) { allocate(tableSize(capacity)); }
+
+    static int tableSize(int capacity) {
+        capacity = Math.min(capacity, MAX_CAPACITY);     // 2 * capacity must not overflow
+        int cap = MIN_CAPACITY;
+        while (cap < 2 * capacity) cap <<= 1;
+        return cap;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    public int size() { return tableCount + (hasZeroKey ? 1 : 0); }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    // Slot holding key, or -(empty slot + 1) where it would go; key must not be 0
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = (int) ((key * 0x9E3779B97F4A7C15L) >>> shift);
+        while (true) {
+            long k = keys[i];
+            if (k == 0) return -(i + 1);
+            if (k == key) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) { return key == 0 ? hasZeroKey : find(key) >= 0; }
+
+    @SuppressWarnings({"unchecked"})
+    public V get(long key) {
+        if (key == 0) return zeroValue;
+        int i = find(key);
+        return i >= 0 ? (V) values[i] : null;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V put(long key, V value) {
+        if (key == 0) {
+            V old = zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i >= 0) {
+            V old = (V) values[i];
+            values[i] = value;
+            return old;
+        }
+        i = -(i + 1);
+        keys[i] = key;
+        values[i] = value;
+        if (2 * ++tableCount > keys.length) rehash();
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V remove(long key) {
+        if (key == 0) {
+            V old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) return null;
+        V old = (V) values[i];
+        deleteSlot(i);
+        tableCount--;
+        return old;
+    }
+
+    // Empties slot i and pulls later entries of the run back so every probe path stays unbroken
+    private void deleteSlot(int i) {
+        int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == 0) break;
+            int home = (int) ((k * 0x9E3779B97F4A7C15L) >>> shift);
+            if (((j - home) & mask) >= ((j - i) & mask)) {
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+        values[i] = null;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != 0) {
+                int i = -(find(oldKeys[j]) + 1);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(values, null);
+        tableCount = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+    }
+
+    // Walks the mappings in table order without allocating:
+    //     for (LongObjectMap<V>.Cursor c = map.cursor(); c.advance(); ) use(c.key(), c.value());
+    // The map must not be changed while the cursor is in use.
+    public class Cursor {
+        private int slot = -2;      // -1 is the zero key
+
+        public boolean advance() {
+            if (slot == -2) {
+                slot = -1;
+                if (hasZeroKey) return true;
+            }
+            while (++slot < keys.length)
+                if (keys[slot] != 0) return true;
+            return false;
+        }
+
+        public long key() {
+            check();
+            return slot == -1 ? 0 : keys[slot];
+        }
+
+        @SuppressWarnings({"unchecked"})
+        public V value() {
+            check();
+            return slot == -1 ? zeroValue : (V) values[slot];
+        }
+
+        private void check() {
+            if (slot < -1 || slot >= keys.length) throw new NoSuchElementException("Cursor is not on an entry");
+        }
+    }
+
+    public Cursor cursor() { return new Cursor(); }
+
+    // View through the generic Map interface; null keys are rejected
+    public Map<Long, V> asMap() {
+        return new AbstractMap<Long, V>() {
+            public int size() { return LongObjectMap.this.size(); }
+            public V get(Long key) { return LongObjectMap.this.get(unbox(key)); }
+            public V put(Long key, V value) { return LongObjectMap.this.put(unbox(key), value); }
+            public V remove(Long key) { return LongObjectMap.this.remove(unbox(key)); }
+            public Iterable<Entry<Long, V>> entrySet() {
+                ArrayList<Entry<Long, V>> snapshot = new ArrayList<>(size());
+                for (Cursor c = cursor(); c.advance(); ) snapshot.add(new MapEntry<>(c.key(), c.value()));
+                return snapshot;
+            }
+        };
+    }
+
+    static long unbox(Long key) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Key is null");
+        return key;
+    }
+
+    public static void main(String[] args)
+    {
+        LongObjectMap<String> names = new LongObjectMap<>();
+        names.put(0, "zero");
+        names.put(42, "answer");
+        names.put(1L << 40, "big");
+        names.remove(42);
+        for (LongObjectMap<String>.Cursor c = names.cursor(); c.advance(); )
+            System.out.println(c.key() + " -> " + c.value());
+
+        IntIntMap counts = new IntIntMap();
+        for (int x : new int[] {3, 1, 3, 0, 3}) counts.put(x, counts.get(x) + 1);
+        System.out.println("3 seen " + counts.get(3) + " times, 7 seen " + counts.get(7));
+    }
+}
+
+// int -> int version of LongObjectMap. Lookups of absent keys return the map's noValue
+// (0 unless given), as do put and remove when there was no previous mapping.
+class IntIntMap
+{
+    private int[] keys;
+    private int[] values;
+    private int shift;          // 32 - log2(capacity)
+    private int tableCount = 0;
+    private boolean hasZeroKey = false;
+    private int zeroValue;
+    private final int noValue;
+
+    public IntIntMap() { this(16, 0); }
+
+    public IntIntMap(int capacity, int noValue) {
+        this.noValue = noValue;
+        allocate(LongObjectMap.tableSize(capacity));
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    public int size() { return tableCount + (hasZeroKey ? 1 : 0); }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    public int noValue() { return noValue; }
+
+    private int home(int key) { return (key * 0x9E3779B9) >>> shift; }
+
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = home(key);
+        while (true) {
+            int k = keys[i];
+            if (k == 0) return -(i + 1);
+            if (k == key) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(int key) { return key == 0 ? hasZeroKey : find(key) >= 0; }
+
+    public int get(int key) {
+        if (key == 0) return hasZeroKey ? zeroValue : noValue;
+        int i = find(key);
+        return i >= 0 ? values[i] : noValue;
+    }
+
+    public int put(int key, int value) {
+        if (key == 0) {
+            int old = hasZeroKey ? zeroValue : noValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i >= 0) {
+            int old = values[i];
+            values[i] = value;
+            return old;
+        }
+        i = -(i + 1);
+        keys[i] = key;
+        values[i] = value;
+        if (2 * ++tableCount > keys.length) rehash();
+        return noValue;
+    }
+
+    public int remove(int key) {
+        if (key == 0) {
+            int old = hasZeroKey ? zeroValue : noValue;
+            hasZeroKey = false;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) return noValue;
+        int old = values[i];
+        deleteSlot(i);
+        tableCount--;
+        return old;
+    }
+
+    private void deleteSlot(int i) {
+        int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            int k = keys[j];
+            if (k == 0) break;
+            if (((j - home(k)) & mask) >= ((j - i) & mask)) {
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+    }
+
+    private void rehash() {
+        int[] oldKeys = keys, oldValues = values;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != 0) {
+                int i = -(find(oldKeys[j]) + 1);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+    }
+
+    public class Cursor {
+        private int slot = -2;
+
+        public boolean advance() {
+            if (slot == -2) {
+                slot = -1;
+                if (hasZeroKey) return true;
+            }
+            while (++slot < keys.length)
+                if (keys[slot] != 0) return true;
+            return false;
+        }
+
+        public int key() {
+            check();
+            return slot == -1 ? 0 : keys[slot];
+        }
+
+        public int value() {
+            check();
+            return slot == -1 ? zeroValue : values[slot];
+        }
+
+        private void check() {
+            if (slot < -1 || slot >= keys.length) throw new NoSuchElementException("Cursor is not on an entry");
+        }
+    }
+
+    public Cursor cursor() { return new Cursor(); }
+
+    public Map<Integer, Integer> asMap() {
+        return new AbstractMap<Integer, Integer>() {
+            public int size() { return IntIntMap.this.size(); }
+            public Integer get(Integer key) {
+                int k = unbox(key);
+                return containsKey(k) ? IntIntMap.this.get(k) : null;
+            }
+            public Integer put(Integer key, Integer value) {
+                int k = unbox(key);
+                boolean had = containsKey(k);
+                int old = IntIntMap.this.put(k, unbox(value));
+                return had ? old : null;
+            }
+            public Integer remove(Integer key) {
+                int k = unbox(key);
+                return containsKey(k) ? IntIntMap.this.remove(k) : null;
+            }
+            public Iterable<Entry<Integer, Integer>> entrySet() {
+                ArrayList<Entry<Integer, Integer>> snapshot = new ArrayList<>(size());
+                for (Cursor c = cursor(); c.advance(); ) snapshot.add(new MapEntry<>(c.key(), c.value()));
+                return snapshot;
+            }
+        };
+    }
+
+    static int unbox(Integer x) throws IllegalArgumentException {
+        if (x == null) throw new IllegalArgumentException("Null key or value");
+        return x;
+    }
+}
+
+// long -> long version of LongObjectMap, with the same noValue convention as IntIntMap
+class LongLongMap
+{
+    private long[] keys;
+    private long[] values;
+    private int shift;
+    private int tableCount = 0;
+    private boolean hasZeroKey = false;
+    private long zeroValue;
+    private final long noValue;
+
+    public LongLongMap() { this(16, 0); }
+
+    public LongLongMap(int capacity, long noValue) {
+        this.noValue = noValue;
+        allocate(LongObjectMap.tableSize(capacity));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+    }
+
+    public int size() { return tableCount + (hasZeroKey ? 1 : 0); }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    public long noValue() { return noValue; }
+
+    private int home(long key) { return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift); }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int i = home(key);
+        while (true) {
+            long k = keys[i];
+            if (k == 0) return -(i + 1);
+            if (k == key) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    public boolean containsKey(long key) { return key == 0 ? hasZeroKey : find(key) >= 0; }
+
+    public long get(long key) {
+        if (key == 0) return hasZeroKey ? zeroValue : noValue;
+        int i = find(key);
+        return i >= 0 ? values[i] : noValue;
+    }
+
+    public long put(long key, long value) {
+        if (key == 0) {
+            long old = hasZeroKey ? zeroValue : noValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i >= 0) {
+            long old = values[i];
+            values[i] = value;
+            return old;
+        }
+        i = -(i + 1);
+        keys[i] = key;
+        values[i] = value;
+        if (2 * ++tableCount > keys.length) rehash();
+        return noValue;
+    }
+
+    public long remove(long key) {
+        if (key == 0) {
+            long old = hasZeroKey ? zeroValue : noValue;
+            hasZeroKey = false;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) return noValue;
+        long old = values[i];
+        deleteSlot(i);
+        tableCount--;
+        return old;
+    }
+
+    private void deleteSlot(int i) {
+        int mask = keys.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keys[j];
+            if (k == 0) break;
+            if (((j - home(k)) & mask) >= ((j - i) & mask)) {
+                keys[i] = k;
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        keys[i] = 0;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys, oldValues = values;
+        allocate(keys.length * 2);
+        for (int j = 0; j < oldKeys.length; j++)
+            if (oldKeys[j] != 0) {
+                int i = -(find(oldKeys[j]) + 1);
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+    }
+
+    public class Cursor {
+        private int slot = -2;
+
+        public boolean advance() {
+            if (slot == -2) {
+                slot = -1;
+                if (hasZeroKey) return true;
+            }
+            while (++slot < keys.length)
+                if (keys[slot] != 0) return true;
+            return false;
+        }
+
+        public long key() {
+            check();
+            return slot == -1 ? 0 : keys[slot];
+        }
+
+        public long value() {
+            check();
+            return slot == -1 ? zeroValue : values[slot];
+        }
+
+        private void check() {
+            if (slot < -1 || slot >= keys.length) throw new NoSuchElementException("Cursor is not on an entry");
+        }
+    }
+
+    public Cursor cursor() { return new Cursor(); }
+
+    public Map<Long, Long> asMap() {
+        return new AbstractMap<Long, Long>() {
+            public int size() { return LongLongMap.this.size(); }
+            public Long get(Long key) {
+                long k = LongObjectMap.unbox(key);
+                return containsKey(k) ? LongLongMap.this.get(k) : null;
+            }
+            public Long put(Long key, Long value) {
+                long k = LongObjectMap.unbox(key);
+                if (value == null) throw new IllegalArgumentException("Value is null");
+                boolean had = containsKey(k);
+                long old = LongLongMap.this.put(k, value);
+                return had ? old : null;
+            }
+            public Long remove(Long key) {
+                long k = LongObjectMap.unbox(key);
+                return containsKey(k) ? LongLongMap.this.remove(k) : null;
+            }
+            public Iterable<Entry<Long, Long>> entrySet() {
+                ArrayList<Entry<Long, Long>> snapshot = new ArrayList<>(size());
+                for (Cursor c = cursor(); c.advance(); ) snapshot.add(new MapEntry<>(c.key(), c.value()));
+                return snapshot;
+            }
+        };
+    }
+}
@@ -0,0 +1,495 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+// Persistent binary min-heap on long keys. The heap array lives in a memory-mapped file
+// (heap.dat), so a cleanly closed queue reopens by mapping the file, with no rebuild.
+//
+// Crash consistency comes from a write-ahead log (heap.wal): every insert and removeMin is
+// appended as a CRC-checked record with a sequence number before the mapped heap is
+// touched, and forced to disk according to the SyncPolicy. Every so often a checkpoint
+// copies the heap to heap.snap (written to a temporary file, then renamed) and truncates
+// the log. If the data file was not closed cleanly, it is rebuilt from the snapshot and the
+// log records after the snapshot's sequence number; a torn record at the tail is cut off.
+//
+// Values are stored with a fixed-width Codec. The mapping is a single buffer, so the file is
+// limited to 2 GB. Not thread-safe.
+public class MappedHeapPriorityQueue<V> implements PriorityQueue<Long, V>, AutoCloseable
+{
+    // PER_OP forces the log before each operation returns; BATCHED every BATCH_OPS operations;
+    // PERIODIC once PERIOD_NANOS have passed, checked on each operation and by a daemon timer
+    // so an idle queue still gets its tail forced. Records are written to the file at once in
+    // every mode, so they survive a killed process; the policy bounds what a power loss can take
+    // (BATCHED leaves up to BATCH_OPS - 1 operations unforced until the next one or close).
+    public enum SyncPolicy { PER_OP, BATCHED, PERIODIC }
+
+    private static final int BATCH_OPS = 64;
+    private static final long PERIOD_NANOS = 100_000_000;
+    private static final long CHECKPOINT_MIN_OPS = 1 << 16;
+
+    private static final int MAGIC = 0x4D485051;    // "MHPQ"
+    private static final int VERSION = 1;
+    // header: magic, version, value width, clean flag, size, last sequence number
+    private static final int HEADER = 64;
+    private static final int WIDTH_AT = 8, CLEAN_AT = 12, SIZE_AT = 16, SEQUENCE_AT = 24;
+
+    // log record: crc, sequence, op, then a heap record (key, value)
+    private static final byte INSERT = 1, REMOVE_MIN = 2;
+    private static final int LOG_SEQUENCE = 4, LOG_OP = 12, LOG_RECORD = 13;
+
+    private final Path dataPath, walPath, snapshotPath;
+    private final Codec<V> codec;
+    private final SyncPolicy sync;
+    private final int stride;                   // key + value
+    private final int logBytes;
+    private final FileChannel dataChannel, wal;
+    private final ByteBuffer logRecord;         // reused for every log write
+    private final ByteBuffer hole;              // heap record being sifted
+    private final CRC32 crc = new CRC32();
+
+    private MappedByteBuffer data;
+    private int capacity;
+    private int size = 0;
+    private long sequence = 0;                  // last logged operation
+    private volatile long unsynced = 0;         // also read by the flush timer
+    private final ScheduledExecutorService flusher;     // PERIODIC only
+    private long lastSync = System.nanoTime();
+    private long sinceCheckpoint = 0;
+    private boolean closed = false;
+
+    public MappedHeapPriorityQueue(Path directory, Codec<V> codec) throws IOException {
+        this(directory, codec, SyncPolicy.BATCHED);
+    }
+
+    public MappedHeapPriorityQueue(Path directory, Codec<V> codec, SyncPolicy sync) throws IOException {
+        this.codec = codec;
+        this.sync = sync;
+        stride = 8 + codec.width();
+        logBytes = LOG_RECORD + stride;
+        logRecord = ByteBuffer.allocateDirect(logBytes).order(ByteOrder.LITTLE_ENDIAN);
+        hole = ByteBuffer.allocate(stride).order(ByteOrder.LITTLE_ENDIAN);
+        Files.createDirectories(directory);
+        dataPath = directory.resolve("heap.dat");
+        walPath = directory.resolve("heap.wal");
+        snapshotPath = directory.resolve("heap.snap");
+        dataChannel = FileChannel.open(dataPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        wal = FileChannel.open(walPath, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+
+        boolean fresh = dataChannel.size() == 0 && wal.size() == 0 && !Files.exists(snapshotPath);
+        map((int) Math.max(1024, (dataChannel.size() - HEADER) / stride));
+        if (fresh) {
+            data.putInt(0, MAGIC);
+            data.putInt(4, VERSION);
+            data.putInt(WIDTH_AT, codec.width());
+        }
+        else if (data.getInt(0) == MAGIC && data.getInt(CLEAN_AT) == 1) {
+            checkHeader(data);
+            size = (int) data.getLong(SIZE_AT);
+            sequence = data.getLong(SEQUENCE_AT);
+        }
+        else
+            recover();
+        wal.position(wal.size());
+        data.putInt(CLEAN_AT, 0);   // from here on a crash means recovery
+        data.force();
+
+        if (sync == SyncPolicy.PERIODIC) {
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread t = new Thread(task, "heap.wal flush");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::flushIdle, PERIOD_NANOS, PERIOD_NANOS, TimeUnit.NANOSECONDS);
+        }
+        else
+            flusher = null;
+    }
+
+    private void checkHeader(ByteBuffer header) throws IOException {
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION)
+            throw new IOException("Not a queue file");
+        if (header.getInt(WIDTH_AT) != codec.width())
+            throw new IllegalArgumentException("Queue was written with a different value width");
+    }
+
+    private void map(int records) throws IOException {
+        long bytes = HEADER + (long) records * stride;
+        if (bytes > Integer.MAX_VALUE) throw new IllegalStateException("Queue file is full");
+        if (data != null) {
+            data.force();
+            OffHeapArray.free(data);
+        }
+        data = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, bytes);
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        capacity = records;
+    }
+
+    //-----------------------RECOVERY----------------------
+
+    // Loads the last snapshot into the mapped file, then replays the log past it
+    private void recover() throws IOException {
+        size = 0;
+        sequence = 0;
+        if (Files.exists(snapshotPath)) {
+            try (FileChannel snap = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(snap, header, 0);
+                checkHeader(header);
+                int count = (int) header.getLong(SIZE_AT);
+                if (count > capacity) map(count);
+                readFully(snap, data.slice(HEADER, count * stride), HEADER);
+                size = count;
+                sequence = header.getLong(SEQUENCE_AT);
+            }
+        }
+        data.putInt(0, MAGIC);
+        data.putInt(4, VERSION);
+        data.putInt(WIDTH_AT, codec.width());
+
+        long position = 0, end = wal.size();
+        while (position + logBytes <= end) {
+            logRecord.clear();
+            readFully(wal, logRecord, position);
+            if (logRecord.getInt(0) != checksum(logRecord)) break;
+            long seq = logRecord.getLong(LOG_SEQUENCE);
+            if (seq > sequence) {
+                if (seq != sequence + 1) break;     // gap: nothing after it can be trusted
+                apply(logRecord.get(LOG_OP));
+                sequence = seq;
+            }
+            position += logBytes;
+        }
+        wal.truncate(position);
+        wal.force(true);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer into, long position) throws IOException {
+        while (into.hasRemaining()) {
+            int n = channel.read(into, position);
+            if (n < 0) throw new IOException("Unexpected end of file");
+            position += n;
+        }
+    }
+
+    private int checksum(ByteBuffer record) {
+        crc.reset();
+        crc.update(record.slice(LOG_SEQUENCE, logBytes - LOG_SEQUENCE));
+        return (int) crc.getValue();
+    }
+
+    private void apply(byte op) throws IOException {
+        if (op == INSERT) {
+            if (size == capacity) map(2 * capacity);
+            data.put(offset(size), logRecord, LOG_RECORD, stride);
+            upHeap(size++);
+        }
+        else if (op == REMOVE_MIN && size > 0)
+            removeRoot();
+    }
+
+    //-----------------------LOG----------------------
+
+    private void log(byte op, long key, V value) {
+        logRecord.clear();
+        logRecord.putLong(LOG_SEQUENCE, sequence + 1);
+        logRecord.put(LOG_OP, op);
+        logRecord.putLong(LOG_RECORD, key);
+        if (op == INSERT) codec.write(logRecord, LOG_RECORD + 8, value);
+        else for (int i = LOG_RECORD + 8; i < logBytes; i++) logRecord.put(i, (byte) 0);
+        logRecord.putInt(0, checksum(logRecord));
+        try {
+            while (logRecord.hasRemaining()) wal.write(logRecord);
+            sequence++;
+            unsynced++;
+            if (sync == SyncPolicy.PER_OP
+                || (sync == SyncPolicy.BATCHED && unsynced >= BATCH_OPS)
+                || (sync == SyncPolicy.PERIODIC && System.nanoTime() - lastSync >= PERIOD_NANOS))
+                sync();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Forces logged operations to disk
+    public void sync() throws UncheckedIOException {
+        if (unsynced == 0) return;
+        try {
+            wal.force(false);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        unsynced = 0;
+        lastSync = System.nanoTime();
+    }
+
+    // Timer side of PERIODIC. FileChannel.force is safe next to the writer's appends; the
+    // counters stay the writer's, so the next operation may force once more, harmlessly.
+    private void flushIdle() {
+        if (unsynced == 0) return;
+        try {
+            wal.force(false);
+        }
+        catch (IOException e) {
+            // the writer's own sync reports a failing log
+        }
+    }
+
+    // Writes the heap to the snapshot file and empties the log
+    public void checkpoint() throws UncheckedIOException {
+        checkOpen();
+        Path tmp = snapshotPath.resolveSibling("heap.snap.tmp");
+        try (FileChannel snap = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = data.slice(0, HEADER).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(SIZE_AT, size);
+            header.putLong(SEQUENCE_AT, sequence);
+            ByteBuffer records = data.slice(HEADER, size * stride);
+            while (header.hasRemaining()) snap.write(header);
+            while (records.hasRemaining()) snap.write(records);
+            snap.force(true);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            Files.move(tmp, snapshotPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            // The rename must be durable before the log goes, or a power loss could keep the
+            // old snapshot next to an empty log
+            try (FileChannel dir = FileChannel.open(snapshotPath.getParent(), StandardOpenOption.READ)) {
+                dir.force(true);
+            }
+            wal.truncate(0);
+            wal.force(true);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        unsynced = 0;
+        sinceCheckpoint = 0;
+    }
+
+    private void afterOperation() {
+        if (++sinceCheckpoint >= Math.max(CHECKPOINT_MIN_OPS, size))
+            checkpoint();
+    }
+
+    //-----------------------HEAP----------------------
+
+    private int offset(int j) { return HEADER + j * stride; }
+
+    private long key(int j) { return data.getLong(offset(j)); }
+
+    private void upHeap(int j) {
+        hole.put(0, data, offset(j), stride);
+        long key = hole.getLong(0);
+        while (j > 0) {
+            int p = (j - 1) >>> 1;
+            if (key >= key(p)) break;
+            data.put(offset(j), data, offset(p), stride);
+            j = p;
+        }
+        data.put(offset(j), hole, 0, stride);
+    }
+
+    private void removeRoot() {
+        size--;
+        if (size == 0) return;
+        hole.put(0, data, offset(size), stride);
+        long key = hole.getLong(0);
+        int j = 0, half = size >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            long childKey = key(c);
+            if (c + 1 < size && key(c + 1) < childKey) childKey = key(++c);
+            if (key <= childKey) break;
+            data.put(offset(j), data, offset(c), stride);
+            j = c;
+        }
+        data.put(offset(j), hole, 0, stride);
+    }
+
+    private void checkOpen() throws IllegalStateException {
+        if (closed) throw new IllegalStateException("Queue is closed");
+    }
+
+    public int size() {
+        checkOpen();
+        return size;
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    // Sequence number of the last operation applied, counting from the queue's creation
+    public long lastSequence() { return sequence; }
+
+    public void offer(long key, V value) {
+        checkOpen();
+        // Grow first: an insert that cannot be applied must not reach the log, or every
+        // recovery would replay it and fail the same way
+        try {
+            if (size == capacity) map(2 * capacity);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        log(INSERT, key, value);
+        data.putLong(offset(size), key);
+        codec.write(data, offset(size) + 8, value);
+        upHeap(size++);
+        afterOperation();
+    }
+
+    public long peekMinKey() throws IllegalStateException {
+        checkOpen();
+        if (size == 0) throw new IllegalStateException("Priority queue is empty");
+        return key(0);
+    }
+
+    public V peekMinValue() {
+        checkOpen();
+        return size == 0 ? null : codec.read(data, offset(0) + 8);
+    }
+
+    public V removeMinValue() {
+        checkOpen();
+        if (size == 0) return null;
+        V answer = codec.read(data, offset(0) + 8);
+        log(REMOVE_MIN, key(0), null);
+        removeRoot();
+        afterOperation();
+        return answer;
+    }
+
+    public Entry<Long, V> insert(Long key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Key is null");
+        offer(key, value);
+        return new AbstractPriorityQueue.PQEntry<>(key, value);
+    }
+
+    public Entry<Long, V> min() {
+        checkOpen();
+        if (size == 0) return null;
+        return new AbstractPriorityQueue.PQEntry<>(key(0), peekMinValue());
+    }
+
+    public Entry<Long, V> removeMin() {
+        checkOpen();
+        if (size == 0) return null;
+        long key = key(0);
+        return new AbstractPriorityQueue.PQEntry<>(key, removeMinValue());
+    }
+
+    // Forces the log and the mapped heap, then marks the file clean so the next open just maps it
+    public void close() throws IOException {
+        if (closed) return;
+        if (flusher != null) {
+            flusher.shutdownNow();
+            try {
+                flusher.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        sync();
+        data.putLong(SIZE_AT, size);
+        data.putLong(SEQUENCE_AT, sequence);
+        data.force();
+        data.putInt(CLEAN_AT, 1);
+        data.force();
+        OffHeapArray.free(data);
+        data = null;
+        size = 0;
+        dataChannel.close();
+        wal.close();
+        closed = true;
+    }
+
+    //-----------------------CRASH TEST----------------------
+
+    // Deterministic workload: every third operation is a removeMin, the rest insert distinct keys
+    private static long workloadKey(long n) { return (n * 0x9E3779B97F4A7C15L) >>> 20; }
+
+    private static void runWorkload(Path dir) throws IOException {
+        try (MappedHeapPriorityQueue<Long> pq = new MappedHeapPriorityQueue<>(dir, Codec.LONG, SyncPolicy.PER_OP)) {
+            for (long n = pq.lastSequence() + 1; ; n++) {
+                if (n % 3 == 0) pq.removeMinValue();
+                else pq.offer(workloadKey(n), n);
+                System.out.println("acked " + n);
+            }
+        }
+    }
+
+    // Expected state after operations 1..count, as (key, value) pairs in key order
+    private static java.util.PriorityQueue<long[]> expected(long count) {
+        java.util.PriorityQueue<long[]> ref = new java.util.PriorityQueue<>((a, b) -> Long.compare(a[0], b[0]));
+        for (long n = 1; n <= count; n++) {
+            if (n % 3 == 0) ref.poll();
+            else ref.add(new long[] {workloadKey(n), n});
+        }
+        return ref;
+    }
+
+    // Runs the workload in a child JVM, kills it with no warning a few times, and checks
+    // that every acknowledged operation survived and the recovered heap matches a replay
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length == 2 && args[0].equals("child")) {
+            runWorkload(Path.of(args[1]));
+            return;
+        }
+        Path dir = Files.createTempDirectory("mapped-heap");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        for (int round = 1; round <= 3; round++) {
+            Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                "MappedHeapPriorityQueue", "child", dir.toString()).redirectErrorStream(true).start();
+            long[] acked = {0};
+            Thread reader = new Thread(() -> {
+                try (BufferedReader in = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+                    for (String line; (line = in.readLine()) != null; )
+                        if (line.startsWith("acked ")) acked[0] = Long.parseLong(line.substring(6));
+                }
+                catch (IOException e) {
+                    // the pipe breaks when the child is killed
+                }
+            });
+            reader.start();
+            Thread.sleep(1000);
+            child.destroyForcibly().waitFor();
+            reader.join();
+
+            try (MappedHeapPriorityQueue<Long> pq = new MappedHeapPriorityQueue<>(dir, Codec.LONG)) {
+                long applied = pq.lastSequence();
+                java.util.PriorityQueue<long[]> ref = expected(applied);
+                boolean ok = applied >= acked[0] && pq.size() == ref.size()
+                    && (ref.isEmpty() || (pq.peekMinKey() == ref.peek()[0] && pq.peekMinValue() == ref.peek()[1]));
+                System.out.printf("round %d: killed after %d acknowledged, recovered %d operations, size %d: %s%n",
+                    round, acked[0], applied, pq.size(), ok ? "ok" : "MISMATCH");
+            }
+        }
+        try (MappedHeapPriorityQueue<Long> pq = new MappedHeapPriorityQueue<>(dir, Codec.LONG)) {
+            java.util.PriorityQueue<long[]> ref = expected(pq.lastSequence());
+            boolean ok = true;
+            while (!ref.isEmpty()) {
+                long[] e = ref.poll();
+                ok &= pq.peekMinKey() == e[0] && pq.removeMinValue() == e[1];
+            }
+            System.out.println("full drain after clean reopen: " + (ok && pq.isEmpty() ? "ok" : "MISMATCH"));
+        }
+    }
+}
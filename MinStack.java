@@ -0,0 +1,194 @@
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Array stack that also answers priority queries. push, pop and top are O(1) (amortized for
+// growth); min() and popMin() use the comparator, and among equal minimums take the one
+// nearest the top. While nothing has been removed from the middle, a prefix-minimum array
+// (slot of the smallest element at or below each slot) answers min() and finds popMin()'s
+// victim in O(1). popMin() below the top leaves a hole that pop() skips; while holes exist,
+// queries go through an index heap of (element, slot, stamp) refs that is brought up to date
+// lazily. A ref goes stale when its slot is popped or reused, which bumps the slot's stamp,
+// and is dropped when it reaches the top of the index, so pop and push never touch it.
+public class MinStack<E> implements Stack<E>
+{
+    private static final Object HOLE = new Object();
+
+    private final Comparator<E> comp;
+    private Object[] items;
+    private int[] prefixMin;        // valid for every slot while holes == 0
+    private int[] stamp;            // bumped whenever a slot is filled or emptied by popMin
+    private int top = 0;            // slots in use, holes included; items[top - 1] is never a hole
+    private int holes = 0;
+
+    // index heap, ordered by element and then by slot, higher first
+    private Object[] heapItems = new Object[16];
+    private int[] heapSlot = new int[16];
+    private int[] heapStamp = new int[16];
+    private int heapSize = 0;
+    private int indexed = 0;        // slots below this have a ref in the index
+
+    public MinStack() { this(new DefaultComparator<E>()); }
+
+    public MinStack(Comparator<E> comp) { this(comp, 16); }
+
+    public MinStack(Comparator<E> comp, int capacity) {
+        this.comp = comp;
+        capacity = Math.max(capacity, 1);
+        items = new Object[capacity];
+        prefixMin = new int[capacity];
+        stamp = new int[capacity];
+    }
+
+    public int size() { return top - holes; }
+
+    public boolean isEmpty() { return top == 0; }
+
+    @SuppressWarnings({"unchecked"})
+    private E item(int slot) { return (E) items[slot]; }
+
+    public void push(E e) throws IllegalArgumentException {
+        if (e == null) throw new IllegalArgumentException("Null element");
+        if (top == items.length) {
+            items = Arrays.copyOf(items, 2 * top);
+            prefixMin = Arrays.copyOf(prefixMin, 2 * top);
+            stamp = Arrays.copyOf(stamp, 2 * top);
+        }
+        items[top] = e;
+        stamp[top]++;
+        if (holes == 0)
+            prefixMin[top] = top == 0 || comp.compare(e, item(prefixMin[top - 1])) <= 0 ? top : prefixMin[top - 1];
+        top++;
+    }
+
+    public E top() {
+        if (top == 0) return null;
+        return item(top - 1);
+    }
+
+    public E pop() {
+        if (top == 0) return null;
+        E answer = item(--top);
+        items[top] = null;
+        while (top > 0 && items[top - 1] == HOLE) {    // holes are only ever trimmed here
+            items[--top] = null;
+            holes--;
+            if (holes == 0) clearIndex();       // prefixMin is valid again for every slot left
+        }
+        if (indexed > top) indexed = top;
+        return answer;
+    }
+
+    public E min() {
+        if (top == 0) return null;
+        return item(minSlot());
+    }
+
+    // Removes and returns the smallest element, O(1) while there are no holes, else O(log n)
+    public E popMin() {
+        if (top == 0) return null;
+        int s = minSlot();
+        if (s == top - 1) return pop();
+        E answer = item(s);
+        items[s] = HOLE;
+        stamp[s]++;
+        holes++;
+        return answer;
+    }
+
+    private int minSlot() {
+        if (holes == 0) return prefixMin[top - 1];
+        catchUp();
+        while (true) {
+            int s = heapSlot[0];
+            if (s < top && heapStamp[0] == stamp[s]) return s;
+            removeHeapTop();
+        }
+    }
+
+    //-----------------------INDEX----------------------
+
+    private int compareRefs(int i, int j) {
+        @SuppressWarnings({"unchecked"})
+        int c = comp.compare((E) heapItems[i], (E) heapItems[j]);
+        return c != 0 ? c : Integer.compare(heapSlot[j], heapSlot[i]);
+    }
+
+    private void swapRefs(int i, int j) {
+        Object item = heapItems[i]; heapItems[i] = heapItems[j]; heapItems[j] = item;
+        int slot = heapSlot[i]; heapSlot[i] = heapSlot[j]; heapSlot[j] = slot;
+        int st = heapStamp[i]; heapStamp[i] = heapStamp[j]; heapStamp[j] = st;
+    }
+
+    private void upHeap(int j) {
+        while (j > 0) {
+            int p = (j - 1) >>> 1;
+            if (compareRefs(j, p) >= 0) break;
+            swapRefs(j, p);
+            j = p;
+        }
+    }
+
+    private void downHeap(int j) {
+        int half = heapSize >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            if (c + 1 < heapSize && compareRefs(c + 1, c) < 0) c++;
+            if (compareRefs(c, j) >= 0) break;
+            swapRefs(j, c);
+            j = c;
+        }
+    }
+
+    private void removeHeapTop() {
+        heapSize--;
+        swapRefs(0, heapSize);
+        heapItems[heapSize] = null;
+        downHeap(0);
+    }
+
+    private void clearIndex() {
+        Arrays.fill(heapItems, 0, heapSize, null);
+        heapSize = 0;
+        indexed = 0;
+    }
+
+    // Adds refs for the slots pushed since the last query, rebuilding the index from scratch
+    // when stale refs would otherwise outnumber live ones
+    private void catchUp() {
+        if (heapSize + (top - indexed) > 2 * size() + 16) clearIndex();
+        int oldSize = heapSize;
+        int needed = heapSize + (top - indexed);
+        if (needed > heapItems.length) {
+            int capacity = Math.max(needed, 2 * heapItems.length);
+            heapItems = Arrays.copyOf(heapItems, capacity);
+            heapSlot = Arrays.copyOf(heapSlot, capacity);
+            heapStamp = Arrays.copyOf(heapStamp, capacity);
+        }
+        for (int s = indexed; s < top; s++) {
+            if (items[s] == HOLE) continue;
+            heapItems[heapSize] = items[s];
+            heapSlot[heapSize] = s;
+            heapStamp[heapSize] = stamp[s];
+            heapSize++;
+        }
+        indexed = top;
+        if (AbstractPriorityQueue.preferHeapify(oldSize, heapSize - oldSize))
+            for (int j = (heapSize >>> 1) - 1; j >= 0; j--) downHeap(j);
+        else
+            for (int j = oldSize; j < heapSize; j++) upHeap(j);
+    }
+
+    public static void main(String[] args)
+    {
+        MinStack<Integer> stack = new MinStack<>();
+        for (int x : new int[] {5, 3, 8, 3, 9, 1, 7})
+            stack.push(x);
+
+        System.out.println("top " + stack.top() + ", min " + stack.min());
+        System.out.println("popMin " + stack.popMin() + ", popMin " + stack.popMin());
+        System.out.println("min " + stack.min() + ", size " + stack.size());
+        while (!stack.isEmpty())
+            System.out.print(stack.pop() + " ");
+        System.out.println();
+    }
+}
@@ -0,0 +1,78 @@
+// Multi-producer single-consumer queue: any number of threads may call offer/enqueue, one
+// thread dequeue/first. Producers claim a slot by advancing tail with a CAS and then publish
+// the element into it with a release store, so the consumer treats a null slot below tail
+// as a claim still being filled and waits for it. The producers share a cached copy of head
+// and only read the real one when the ring looks full.
+public class MpscArrayQueue<E> extends ConcurrentRingQueue<E>
+{
+    public MpscArrayQueue(int capacity) { super(capacity); }
+
+    public boolean offer(E e) throws IllegalArgumentException {
+        checkElement(e);
+        long t;
+        do {
+            t = tail;
+            if (t - headCache >= buffer.length) {
+                long h = head;
+                headCache = h;              // racing producers may store an older head, which is still safe
+                if (t - h >= buffer.length) return false;
+            }
+        } while (!TAIL.compareAndSet(this, t, t + 1));
+        SLOT.setRelease(buffer, (int) t & mask, e);
+        return true;
+    }
+
+    // Element in the head slot, waiting out a producer that has claimed it but not filled it
+    private Object headElement(long h) {
+        int slot = (int) h & mask;
+        Object e = SLOT.getAcquire(buffer, slot);
+        if (e == null) {
+            if (h == tail) return null;
+            do {
+                Thread.onSpinWait();
+                e = SLOT.getAcquire(buffer, slot);
+            } while (e == null);
+        }
+        return e;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public E first() {
+        return (E) headElement((long) HEAD.getOpaque(this));
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public E dequeue() {
+        long h = (long) HEAD.getOpaque(this);
+        Object answer = headElement(h);
+        if (answer == null) return null;
+        buffer[(int) h & mask] = null;
+        HEAD.setRelease(this, h + 1);
+        return (E) answer;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(1024);
+        int producers = 4, each = 250_000;
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                for (int i = 0; i < each; i++)
+                    while (!queue.offer(i)) Thread.yield();
+            });
+            threads[p].start();
+        }
+        long sum = 0;
+        for (int received = 0; received < producers * each; ) {
+            Integer x = queue.dequeue();
+            if (x == null) Thread.yield();
+            else {
+                sum += x;
+                received++;
+            }
+        }
+        for (Thread t : threads) t.join();
+        System.out.println("received " + producers * each + ", sum " + sum);
+    }
+}
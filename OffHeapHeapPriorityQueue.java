@@ -0,0 +1,316 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+// Fixed-width binary encoding of values kept outside the Java heap. Reads and writes use
+// absolute offsets and leave the buffer's position alone.
+interface Codec<T>
+{
+    int width();                                        // bytes per encoded value
+    void write(ByteBuffer buffer, int offset, T value);
+    T read(ByteBuffer buffer, int offset);
+
+    Codec<Long> LONG = new Codec<Long>() {
+        public int width() { return 8; }
+        public void write(ByteBuffer b, int offset, Long v) { b.putLong(offset, nonNull(v)); }
+        public Long read(ByteBuffer b, int offset) { return b.getLong(offset); }
+    };
+
+    Codec<Integer> INT = new Codec<Integer>() {
+        public int width() { return 4; }
+        public void write(ByteBuffer b, int offset, Integer v) { b.putInt(offset, nonNull(v)); }
+        public Integer read(ByteBuffer b, int offset) { return b.getInt(offset); }
+    };
+
+    Codec<Double> DOUBLE = new Codec<Double>() {
+        public int width() { return 8; }
+        public void write(ByteBuffer b, int offset, Double v) { b.putDouble(offset, nonNull(v)); }
+        public Double read(ByteBuffer b, int offset) { return b.getDouble(offset); }
+    };
+
+    // UTF-8 with an int length prefix (-1 for null); longer strings are rejected
+    static Codec<String> string(int maxBytes) {
+        return new Codec<String>() {
+            public int width() { return 4 + maxBytes; }
+            public void write(ByteBuffer b, int offset, String v) {
+                if (v == null) {
+                    b.putInt(offset, -1);
+                    return;
+                }
+                byte[] bytes = v.getBytes(StandardCharsets.UTF_8);
+                if (bytes.length > maxBytes) throw new IllegalArgumentException("String longer than " + maxBytes + " bytes");
+                b.putInt(offset, bytes.length);
+                b.put(offset + 4, bytes);
+            }
+            public String read(ByteBuffer b, int offset) {
+                int length = b.getInt(offset);
+                if (length < 0) return null;
+                byte[] bytes = new byte[length];
+                b.get(offset + 4, bytes);
+                return new String(bytes, StandardCharsets.UTF_8);
+            }
+        };
+    }
+
+    static <T> T nonNull(T value) throws IllegalArgumentException {
+        if (value == null) throw new IllegalArgumentException("Value is null");
+        return value;
+    }
+}
+
+// Growable array of fixed-size records in direct ByteBuffers. Below one chunk it grows by
+// copying into a buffer twice the size; past that it adds 64 MB chunks, so large arrays
+// never copy. Records never straddle two chunks. close() frees the memory right away
+// instead of waiting for the buffers to be collected.
+class OffHeapArray implements AutoCloseable
+{
+    private static final int CHUNK_BYTES = 1 << 26;
+
+    final int stride;                       // record size, a multiple of 8
+    private final int shift, mask;          // records per chunk is 1 << shift
+    private ByteBuffer[] chunks;
+    private long capacity;
+
+    OffHeapArray(int recordBytes, int initialRecords) {
+        stride = (Math.max(recordBytes, 1) + 7) & ~7;
+        shift = 31 - Integer.numberOfLeadingZeros(CHUNK_BYTES / stride);
+        mask = (1 << shift) - 1;
+        int first = Math.min(Math.max(initialRecords, 16), 1 << shift);
+        chunks = new ByteBuffer[] { allocate(first) };
+        capacity = first;
+    }
+
+    private ByteBuffer allocate(int records) {
+        return ByteBuffer.allocateDirect(records * stride).order(ByteOrder.nativeOrder());
+    }
+
+    long capacity() { return capacity; }
+
+    void ensureCapacity(long records) throws IllegalStateException {
+        if (chunks == null) throw new IllegalStateException("Storage is closed");
+        if (records <= capacity) return;
+        if (records > (long) Integer.MAX_VALUE + 1) throw new IllegalStateException("Too many records");
+        if (capacity < 1 << shift) {
+            int grown = (int) Math.min(Math.max(2 * capacity, records), 1 << shift);
+            ByteBuffer old = chunks[0];
+            ByteBuffer bigger = allocate(grown);
+            bigger.put(0, old, 0, old.capacity());
+            chunks[0] = bigger;
+            free(old);
+            capacity = grown;
+        }
+        while (capacity < records) {
+            ByteBuffer[] more = new ByteBuffer[chunks.length + 1];
+            System.arraycopy(chunks, 0, more, 0, chunks.length);
+            more[chunks.length] = allocate(1 << shift);
+            chunks = more;
+            capacity += 1 << shift;
+        }
+    }
+
+    ByteBuffer buffer(int record) { return chunks[record >>> shift]; }
+
+    int offset(int record) { return (record & mask) * stride; }
+
+    long getLong(int record, int field) { return buffer(record).getLong(offset(record) + field); }
+
+    void putLong(int record, int field, long value) { buffer(record).putLong(offset(record) + field, value); }
+
+    void load(int record, long[] words) {
+        ByteBuffer b = buffer(record);
+        int off = offset(record);
+        for (int w = 0; w < words.length; w++) words[w] = b.getLong(off + 8 * w);
+    }
+
+    void store(int record, long[] words) {
+        ByteBuffer b = buffer(record);
+        int off = offset(record);
+        for (int w = 0; w < words.length; w++) b.putLong(off + 8 * w, words[w]);
+    }
+
+    void copy(int from, OffHeapArray target, int to) {
+        target.buffer(to).put(target.offset(to), buffer(from), offset(from), stride);
+    }
+
+    public void close() {
+        if (chunks == null) return;
+        for (ByteBuffer chunk : chunks) free(chunk);
+        chunks = null;
+        capacity = 0;
+    }
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method cleaner = null;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            cleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // not available; freed buffers are left to the garbage collector
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = cleaner;
+    }
+
+    // Releases a direct buffer's memory now; the buffer must not be used afterwards
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) return;
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // leave it to the garbage collector
+        }
+    }
+}
+
+// Binary min-heap on long keys whose entries live off the Java heap, in an OffHeapArray
+// of [key, encoded value] records, so the collector has nothing to trace however large the
+// queue grows. Values are encoded with a fixed-width Codec and decoded again when they
+// are removed. Call close() to release the memory; the queue is unusable afterwards.
+public class OffHeapHeapPriorityQueue<V> implements PriorityQueue<Long, V>, AutoCloseable
+{
+    private static final int VALUE = 8;     // value bytes start after the key
+
+    private final Codec<V> codec;
+    private final OffHeapArray records;
+    private final long[] hole;              // record being sifted
+    private int size = 0;
+    private boolean closed = false;
+
+    public OffHeapHeapPriorityQueue(Codec<V> codec) { this(codec, 1024); }
+
+    public OffHeapHeapPriorityQueue(Codec<V> codec, int capacity) {
+        this.codec = codec;
+        records = new OffHeapArray(VALUE + codec.width(), capacity);
+        hole = new long[records.stride / 8];
+    }
+
+    private void checkOpen() throws IllegalStateException {
+        if (closed) throw new IllegalStateException("Queue is closed");
+    }
+
+    public int size() {
+        checkOpen();
+        return size;
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    private long key(int j) { return records.getLong(j, 0); }
+
+    private V value(int j) { return codec.read(records.buffer(j), records.offset(j) + VALUE); }
+
+    // Primitive API: no boxing and no Entry objects
+    public void offer(long key, V value) {
+        checkOpen();
+        records.ensureCapacity(size + 1L);
+        records.putLong(size, 0, key);
+        codec.write(records.buffer(size), records.offset(size) + VALUE, value);
+        records.load(size, hole);
+        upHeap(size++);
+    }
+
+    public long peekMinKey() throws IllegalStateException {
+        checkOpen();
+        if (size == 0) throw new IllegalStateException("Priority queue is empty");
+        return key(0);
+    }
+
+    public V peekMinValue() {
+        checkOpen();
+        return size == 0 ? null : value(0);
+    }
+
+    public V removeMinValue() {
+        checkOpen();
+        if (size == 0) return null;
+        V answer = value(0);
+        size--;
+        if (size > 0) {
+            records.load(size, hole);
+            downHeap(0);
+        }
+        return answer;
+    }
+
+    // Moves the hole up from j and drops the record in hole[] where it stops
+    private void upHeap(int j) {
+        long key = hole[0];
+        while (j > 0) {
+            int p = (j - 1) >>> 1;
+            if (key >= key(p)) break;
+            records.copy(p, records, j);
+            j = p;
+        }
+        records.store(j, hole);
+    }
+
+    private void downHeap(int j) {
+        long key = hole[0];
+        int half = size >>> 1;
+        while (j < half) {
+            int c = 2 * j + 1;
+            long childKey = key(c);
+            if (c + 1 < size) {
+                long rightKey = key(c + 1);
+                if (rightKey < childKey) {
+                    c++;
+                    childKey = rightKey;
+                }
+            }
+            if (key <= childKey) break;
+            records.copy(c, records, j);
+            j = c;
+        }
+        records.store(j, hole);
+    }
+
+    public Entry<Long, V> insert(Long key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Key is null");
+        offer(key, value);
+        return new AbstractPriorityQueue.PQEntry<>(key, value);
+    }
+
+    public Entry<Long, V> min() {
+        checkOpen();
+        if (size == 0) return null;
+        return new AbstractPriorityQueue.PQEntry<>(key(0), value(0));
+    }
+
+    public Entry<Long, V> removeMin() {
+        checkOpen();
+        if (size == 0) return null;
+        long key = key(0);
+        return new AbstractPriorityQueue.PQEntry<>(key, removeMinValue());
+    }
+
+    public void close() {
+        if (closed) return;
+        records.close();
+        size = 0;
+        closed = true;
+    }
+
+    public static void main(String[] args)
+    {
+        try (OffHeapHeapPriorityQueue<String> pq = new OffHeapHeapPriorityQueue<>(Codec.string(16))) {
+            pq.offer(30, "thirty");
+            pq.offer(10, "ten");
+            pq.offer(20, "twenty");
+            while (!pq.isEmpty()) {
+                long key = pq.peekMinKey();
+                System.out.println(key + " " + pq.removeMinValue());
+            }
+        }
+    }
+}
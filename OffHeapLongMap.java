@@ -0,0 +1,188 @@
+import java.util.NoSuchElementException;
+
+// long -> V map stored off the Java heap: an open-addressing table of [key, encoded value]
+// records in an OffHeapArray, laid out like LongObjectMap (key 0 marks an empty slot, the
+// mapping for key 0 is kept on the heap, linear probing with backward-shift deletion,
+// doubling at half full). Values go through a fixed-width Codec, so get decodes a fresh copy.
+// Call close() to release the memory; the map is unusable afterwards.
+public class OffHeapLongMap<V> implements AutoCloseable
+{
+    private static final int VALUE = 8;
+
+    private final Codec<V> codec;
+    private OffHeapArray table;
+    private int capacity;
+    private int shift;          // 64 - log2(capacity)
+    private int tableCount = 0;
+    private boolean hasZeroKey = false;
+    private V zeroValue;
+
+    public OffHeapLongMap(Codec<V> codec) { this(codec, 16); }
+
+    public OffHeapLongMap(Codec<V> codec, int expected) {
+        this.codec = codec;
+        allocate(LongObjectMap.tableSize(expected));
+    }
+
+    private void allocate(int slots) {
+        table = new OffHeapArray(VALUE + codec.width(), slots);
+        table.ensureCapacity(slots);
+        capacity = slots;
+        shift = 64 - Integer.numberOfTrailingZeros(slots);     // direct buffers start zeroed, so empty
+    }
+
+    private void checkOpen() throws IllegalStateException {
+        if (table == null) throw new IllegalStateException("Map is closed");
+    }
+
+    public int size() {
+        checkOpen();
+        return tableCount + (hasZeroKey ? 1 : 0);
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    private int home(long key) { return (int) ((key * 0x9E3779B97F4A7C15L) >>> shift); }
+
+    private int find(long key) {
+        int mask = capacity - 1;
+        int i = home(key);
+        while (true) {
+            long k = table.getLong(i, 0);
+            if (k == 0) return -(i + 1);
+            if (k == key) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private V value(int i) { return codec.read(table.buffer(i), table.offset(i) + VALUE); }
+
+    public boolean containsKey(long key) {
+        checkOpen();
+        return key == 0 ? hasZeroKey : find(key) >= 0;
+    }
+
+    public V get(long key) {
+        checkOpen();
+        if (key == 0) return zeroValue;
+        int i = find(key);
+        return i >= 0 ? value(i) : null;
+    }
+
+    public V put(long key, V value) {
+        checkOpen();
+        if (key == 0) {
+            V old = zeroValue;
+            hasZeroKey = true;
+            zeroValue = value;
+            return old;
+        }
+        int i = find(key);
+        if (i >= 0) {
+            V old = value(i);
+            codec.write(table.buffer(i), table.offset(i) + VALUE, value);
+            return old;
+        }
+        i = -(i + 1);
+        codec.write(table.buffer(i), table.offset(i) + VALUE, value);
+        table.putLong(i, 0, key);
+        if (2 * ++tableCount > capacity) rehash();
+        return null;
+    }
+
+    public V remove(long key) {
+        checkOpen();
+        if (key == 0) {
+            V old = zeroValue;
+            hasZeroKey = false;
+            zeroValue = null;
+            return old;
+        }
+        int i = find(key);
+        if (i < 0) return null;
+        V old = value(i);
+        deleteSlot(i);
+        tableCount--;
+        return old;
+    }
+
+    private void deleteSlot(int i) {
+        int mask = capacity - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = table.getLong(j, 0);
+            if (k == 0) break;
+            if (((j - home(k)) & mask) >= ((j - i) & mask)) {
+                table.copy(j, table, i);
+                i = j;
+            }
+        }
+        table.putLong(i, 0, 0);
+    }
+
+    private void rehash() {
+        OffHeapArray old = table;
+        int oldCapacity = capacity;
+        allocate(capacity * 2);
+        for (int j = 0; j < oldCapacity; j++) {
+            long k = old.getLong(j, 0);
+            if (k != 0) old.copy(j, table, -(find(k) + 1));
+        }
+        old.close();
+    }
+
+    // Walks the mappings in table order: for (c = map.cursor(); c.advance(); ) use(c.key(), c.value())
+    public class Cursor {
+        private int slot = -2;      // -1 is the zero key
+
+        public boolean advance() {
+            checkOpen();
+            if (slot == -2) {
+                slot = -1;
+                if (hasZeroKey) return true;
+            }
+            while (++slot < capacity)
+                if (table.getLong(slot, 0) != 0) return true;
+            return false;
+        }
+
+        public long key() {
+            check();
+            return slot == -1 ? 0 : table.getLong(slot, 0);
+        }
+
+        public V value() {
+            check();
+            return slot == -1 ? zeroValue : OffHeapLongMap.this.value(slot);
+        }
+
+        private void check() {
+            if (slot < -1 || slot >= capacity) throw new NoSuchElementException("Cursor is not on an entry");
+        }
+    }
+
+    public Cursor cursor() {
+        checkOpen();
+        return new Cursor();
+    }
+
+    public void close() {
+        if (table == null) return;
+        table.close();
+        table = null;
+        capacity = 0;
+        tableCount = 0;
+        hasZeroKey = false;
+        zeroValue = null;
+    }
+
+    public static void main(String[] args)
+    {
+        try (OffHeapLongMap<Double> prices = new OffHeapLongMap<>(Codec.DOUBLE)) {
+            for (long id = 0; id < 1_000_000; id++) prices.put(id, id * 0.5);
+            prices.remove(7);
+            System.out.println(prices.size() + " prices, id 42 costs " + prices.get(42));
+        }
+    }
+}
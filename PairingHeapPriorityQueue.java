@@ -0,0 +1,219 @@
+import java.util.Comparator;
+
+// Pairing heap: a heap-ordered multiway tree kept as leftmost-child / next-sibling links.
+// insert and meld link two roots with one compare (O(1)); removeMin combines the root's
+// children with two-pass pairing (amortized O(log n)); decreaseKey cuts the entry's subtree
+// and links it to the root. meld takes over the other queue's nodes without touching them;
+// their owner token is forwarded to this queue, so entries from either queue stay valid here.
+public class PairingHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
+    implements AdaptablePriorityQueue<K, V>
+{
+    // Identifies the queue a node belongs to; after a meld it forwards to the absorbing queue
+    private static class Owner {
+        Owner next;
+    }
+
+    // The entry is its own position in the tree. prev is the parent for a leftmost child and
+    // the left sibling otherwise; owner is null once the entry has been removed.
+    protected static class Node<K, V> extends PQEntry<K, V> implements Position<Entry<K, V>> {
+        private Node<K, V> child, next, prev;
+        private Owner owner;
+
+        Node(K key, V value, Owner owner) {
+            super(key, value);
+            this.owner = owner;
+        }
+
+        public Entry<K, V> getElement() throws IllegalStateException {
+            if (owner == null) throw new IllegalStateException("Entry is no longer in the queue");
+            return this;
+        }
+    }
+
+    private Node<K, V> root = null;
+    private int size = 0;
+    private Owner owner = new Owner();
+
+    public PairingHeapPriorityQueue() { super(); }
+
+    public PairingHeapPriorityQueue(Comparator<K> comp) { super(comp); }
+
+    public int size() { return size; }
+
+    private static Owner resolve(Owner o) {
+        while (o.next != null) {
+            if (o.next.next != null) o.next = o.next.next;     // path halving
+            o = o.next;
+        }
+        return o;
+    }
+
+    // Checks that the entry is one of ours and is still in the queue
+    protected Node<K, V> validate(Entry<K, V> entry) throws IllegalArgumentException {
+        if (!(entry instanceof Node))
+            throw new IllegalArgumentException("Invalid entry");
+        Node<K, V> node = (Node<K, V>) entry;
+        if (node.owner == null || resolve(node.owner) != owner)
+            throw new IllegalArgumentException("Invalid entry");
+        return node;
+    }
+
+    // Makes the larger of two roots the leftmost child of the smaller; the winner's sibling
+    // links are left for the caller
+    private Node<K, V> link(Node<K, V> a, Node<K, V> b) {
+        if (compare(b, a) < 0) {
+            Node<K, V> t = a;
+            a = b;
+            b = t;
+        }
+        b.prev = a;
+        b.next = a.child;
+        if (a.child != null) a.child.prev = b;
+        a.child = b;
+        return a;
+    }
+
+    private Node<K, V> merge(Node<K, V> a, Node<K, V> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        Node<K, V> winner = link(a, b);
+        winner.prev = winner.next = null;
+        return winner;
+    }
+
+    // Two-pass pairing of a sibling list: link pairs left to right, stacking the winners on
+    // their next links, then fold the stack from the right
+    private Node<K, V> combine(Node<K, V> first) {
+        if (first == null) return null;
+        Node<K, V> pairs = null;
+        Node<K, V> a = first;
+        while (a != null) {
+            Node<K, V> b = a.next;
+            if (b == null) {
+                a.next = pairs;
+                pairs = a;
+                break;
+            }
+            Node<K, V> rest = b.next;
+            Node<K, V> winner = link(a, b);
+            winner.next = pairs;
+            pairs = winner;
+            a = rest;
+        }
+        Node<K, V> result = pairs;
+        pairs = pairs.next;
+        while (pairs != null) {
+            Node<K, V> rest = pairs.next;
+            result = link(result, pairs);
+            pairs = rest;
+        }
+        result.prev = result.next = null;
+        return result;
+    }
+
+    // Detaches a non-root node together with its subtree
+    private void cut(Node<K, V> node) {
+        if (node.prev.child == node) node.prev.child = node.next;
+        else node.prev.next = node.next;
+        if (node.next != null) node.next.prev = node.prev;
+        node.prev = node.next = null;
+    }
+
+    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        Node<K, V> newest = new Node<>(key, value, owner);
+        root = merge(root, newest);
+        size++;
+        return newest;
+    }
+
+    public Entry<K, V> min() { return root; }
+
+    public Entry<K, V> removeMin() {
+        if (root == null) return null;
+        Node<K, V> answer = root;
+        root = combine(answer.child);
+        answer.child = null;
+        answer.owner = null;
+        size--;
+        return answer;
+    }
+
+    // Moves every entry of other into this queue in O(1) and leaves other empty. Both queues
+    // must order keys the same way. Entries handed out by other remain valid, now for this queue.
+    public void meld(PairingHeapPriorityQueue<K, V> other) throws IllegalArgumentException {
+        if (other == this) throw new IllegalArgumentException("Cannot meld a queue with itself");
+        root = merge(root, other.root);
+        size += other.size;
+        other.owner.next = owner;
+        other.owner = new Owner();
+        other.root = null;
+        other.size = 0;
+    }
+
+    public void decreaseKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+        Node<K, V> node = validate(entry);
+        checkKey(key);
+        if (compareKeys(key, node.getKey()) > 0)
+            throw new IllegalArgumentException("New key is larger than the current key");
+        node.setKey(key);
+        if (node != root) {
+            cut(node);
+            root = merge(root, node);
+        }
+    }
+
+    public void remove(Entry<K, V> entry) throws IllegalArgumentException {
+        Node<K, V> node = validate(entry);
+        if (node == root) {
+            removeMin();
+            return;
+        }
+        cut(node);
+        root = merge(root, combine(node.child));
+        node.child = null;
+        node.owner = null;
+        size--;
+    }
+
+    public void replaceKey(Entry<K, V> entry, K key) throws IllegalArgumentException {
+        Node<K, V> node = validate(entry);
+        checkKey(key);
+        if (compareKeys(key, node.getKey()) <= 0) {
+            decreaseKey(node, key);
+            return;
+        }
+        // a larger key may now sit above its children: reinsert the node on its own
+        if (node == root) root = combine(node.child);
+        else {
+            cut(node);
+            root = merge(root, combine(node.child));
+        }
+        node.child = null;
+        node.setKey(key);
+        root = merge(root, node);
+    }
+
+    public void replaceValue(Entry<K, V> entry, V value) throws IllegalArgumentException {
+        Node<K, V> node = validate(entry);
+        node.setValue(value);
+    }
+
+    public static void main(String[] args)
+    {
+        PairingHeapPriorityQueue<Integer, String> east = new PairingHeapPriorityQueue<>();
+        PairingHeapPriorityQueue<Integer, String> west = new PairingHeapPriorityQueue<>();
+        east.insert(40, "east-40");
+        Entry<Integer, String> late = east.insert(90, "east-90");
+        west.insert(20, "west-20");
+        west.insert(70, "west-70");
+
+        east.meld(west);
+        east.decreaseKey(late, 10);
+        System.out.println(east.size() + " jobs, west is empty: " + west.isEmpty());
+        while (!east.isEmpty()) {
+            Entry<Integer, String> e = east.removeMin();
+            System.out.println(e.getKey() + " " + e.getValue());
+        }
+    }
+}
@@ -1,5 +1,8 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 
 import java.util.Iterator;
 
@@ -94,6 +97,10 @@ abstract class AbstractPriorityQueue<K, V> implements PriorityQueue<K, V> {
         return comp.compare(a.getKey(), b.getKey());
     }
 
+    protected int compareKeys(K a, K b) {
+        return comp.compare(a, b);
+    }
+
     protected boolean checkKey(K key) throws IllegalArgumentException {
         try {
             return (comp.compare(key, key) == 0);
@@ -105,12 +112,267 @@ abstract class AbstractPriorityQueue<K, V> implements PriorityQueue<K, V> {
 
     public boolean isEmpty() { return size() == 0; }
 
+    // After appending added entries to a heap of size entries, decides whether to rebuild it
+    // bottom-up (about 2(n + k) compares) rather than upheap each new entry (up to k log(n + k))
+    protected static boolean preferHeapify(int size, int added) {
+        long total = (long) size + added;
+        int height = 64 - Long.numberOfLeadingZeros(total);
+        return (long) added * height > 2 * total;
+    }
 }
 
-class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
+// Heap kept in an ArrayList, whatever its branching factor. Subclasses give the index
+// arithmetic (parent, firstChild, arity); everything else, batch operations included, is shared.
+abstract class ArrayHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
 
     protected ArrayList<Entry<K, V>> heap = new ArrayList<>();
 
+    protected ArrayHeapPriorityQueue() { super(); }
+
+    protected ArrayHeapPriorityQueue(Comparator<K> comp) { super(comp); }
+
+    protected abstract int parent(int j);
+
+    protected abstract int firstChild(int j);
+
+    protected abstract int arity();
+
+    protected Entry<K, V> createEntry(K key, V value) {
+        return new PQEntry<>(key, value);
+    }
+
+    protected void swap(int i, int j) {
+        Entry<K, V> temp = heap.get(i);
+        heap.set(i, heap.get(j));
+        heap.set(j, temp);
+    }
+
+    protected void upHeap(int j) {
+        while (j > 0) {
+            int p = parent(j);
+            if (compare(heap.get(j), heap.get(p)) >= 0) break;
+            swap(j, p);
+            j = p;
+        }
+    }
+
+    // Index of the smallest child of j, or -1 if j is a leaf.
+    // Only the running minimum is carried through the scan, so each sibling costs one compare.
+    protected int smallestChild(int j) {
+        int first = firstChild(j);
+        int n = heap.size();
+        if (first >= n) return -1;
+
+        int last = Math.min(first + arity(), n);
+        int small = first;
+        Entry<K, V> smallEntry = heap.get(first);
+        for (int c = first + 1; c < last; c++) {
+            Entry<K, V> candidate = heap.get(c);
+            if (compare(candidate, smallEntry) < 0) {
+                small = c;
+                smallEntry = candidate;
+            }
+        }
+        return small;
+    }
+
+    protected void downHeap(int j) {
+        int small;
+        while ((small = smallestChild(j)) >= 0) {
+            if (compare(heap.get(small), heap.get(j)) >= 0) break;
+            swap(j, small);
+            j = small;
+        }
+    }
+
+    protected void heapify() {
+        int startIndex = parent(size() - 1);
+        for (int j = startIndex; j >= 0; j--)
+            downHeap(j);
+    }
+
+    // Heapify for constructors, which must not call anything a subclass can override: it is
+    // static, takes the comparator and the arity as arguments, and moves entries with holes
+    static <K, V> void buildHeap(ArrayList<Entry<K, V>> heap, int d, Comparator<K> comp) {
+        int n = heap.size();
+        for (int i = n < 2 ? -1 : (n - 2) / d; i >= 0; i--) {
+            int j = i;
+            Entry<K, V> entry = heap.get(j);
+            int first;
+            while ((first = d * j + 1) < n) {
+                int small = first;
+                Entry<K, V> smallEntry = heap.get(first);
+                for (int c = first + 1; c < first + d && c < n; c++)
+                    if (comp.compare(heap.get(c).getKey(), smallEntry.getKey()) < 0) {
+                        small = c;
+                        smallEntry = heap.get(c);
+                    }
+                if (comp.compare(smallEntry.getKey(), entry.getKey()) >= 0) break;
+                heap.set(j, smallEntry);
+                j = small;
+            }
+            heap.set(j, entry);
+        }
+    }
+
+    public int size() { return heap.size(); }
+
+    public Entry<K, V> min() {
+        if (heap.isEmpty()) return null;
+        return heap.get(0);
+    }
+
+    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
+        checkKey(key);
+        Entry<K, V> newest = createEntry(key, value);
+
+        heap.add(newest);
+        upHeap(heap.size() - 1);
+        return newest;
+    }
+
+    public Entry<K, V> removeMin() {
+        if (heap.isEmpty()) return null;
+
+        Entry<K, V> answer = heap.get(0);
+        swap(0, heap.size() - 1);
+        heap.remove(heap.size() - 1);
+        downHeap(0);
+        return answer;
+    }
+
+    public void insertAll(K[] keys, V[] values) throws IllegalArgumentException {
+        int oldSize = heap.size();
+        int n = Math.min(keys.length, values.length);
+        for (int j = 0; j < n; j++)
+            checkKey(keys[j]);
+        heap.ensureCapacity(oldSize + n);
+        for (int j = 0; j < n; j++)
+            heap.add(createEntry(keys[j], values[j]));
+        restoreAfterAppend(oldSize);
+    }
+
+    public void insertAll(Collection<? extends Entry<K, V>> entries) throws IllegalArgumentException {
+        int oldSize = heap.size();
+        for (Entry<K, V> e : entries)
+            checkKey(e.getKey());
+        heap.ensureCapacity(oldSize + entries.size());
+        for (Entry<K, V> e : entries)
+            heap.add(createEntry(e.getKey(), e.getValue()));
+        restoreAfterAppend(oldSize);
+    }
+
+    // Moves every entry of other into this queue, leaving other empty
+    public void merge(PriorityQueue<K, V> other) throws IllegalArgumentException {
+        if (other == this) return;
+        ArrayList<Entry<K, V>> entries = new ArrayList<>(other.size());
+        if (other instanceof ArrayHeapPriorityQueue) {
+            ArrayHeapPriorityQueue<K, V> h = (ArrayHeapPriorityQueue<K, V>) other;
+            entries.addAll(h.heap);
+            h.heap.clear();
+        }
+        else
+            while (!other.isEmpty()) entries.add(other.removeMin());
+        insertAll(entries);
+    }
+
+    protected void restoreAfterAppend(int oldSize) {
+        if (preferHeapify(oldSize, heap.size() - oldSize))
+            heapify();
+        else
+            for (int j = oldSize; j < heap.size(); j++)
+                upHeap(j);
+    }
+
+    // Removes and returns up to k smallest entries, smallest first.
+    // The k smallest form a subtree at the root; they are found with a small index heap over
+    // that subtree's frontier, without touching the main heap. The holes they leave are then
+    // filled from the end, deepest first: each hole sinks to a leaf along the smaller children
+    // (arity - 1 compares per level instead of a full downheap) and the moved entry climbs back up.
+    // A batch that is large relative to the heap is repaired by one heapify instead.
+    public List<Entry<K, V>> removeMin(int k) {
+        k = Math.min(k, heap.size());
+        List<Entry<K, V>> result = new ArrayList<>(Math.max(k, 0));
+        if (k <= 0) return result;
+
+        int d = arity();
+        int[] holes = new int[k];
+        int[] frontier = new int[(d - 1) * k + 1];
+        int frontierSize = 1;
+        for (int i = 0; i < k; i++) {
+            int j = frontier[0];
+            frontier[0] = frontier[--frontierSize];
+            frontierDown(frontier, frontierSize);
+            result.add(heap.get(j));
+            holes[i] = j;
+            int first = firstChild(j);
+            for (int c = first; c < first + d && c < heap.size(); c++) {
+                frontier[frontierSize++] = c;
+                frontierUp(frontier, frontierSize);
+            }
+        }
+
+        Arrays.sort(holes);
+        boolean rebuild = preferHeapify(heap.size() - k, k);
+        for (int i = k - 1; i >= 0; i--) {
+            int j = holes[i];
+            int last = heap.size() - 1;
+            if (j < last) swap(j, last);
+            heap.remove(last);
+            if (j < last && !rebuild) sinkHole(j);
+        }
+        if (rebuild) heapify();
+        return result;
+    }
+
+    // Binary heap over heap indices, ordered by the entries they point at
+    private void frontierUp(int[] frontier, int n) {
+        int j = n - 1;
+        int index = frontier[j];
+        while (j > 0) {
+            int p = (j - 1) >>> 1;
+            if (compare(heap.get(index), heap.get(frontier[p])) >= 0) break;
+            frontier[j] = frontier[p];
+            j = p;
+        }
+        frontier[j] = index;
+    }
+
+    private void frontierDown(int[] frontier, int n) {
+        if (n == 0) return;
+        int j = 0;
+        int index = frontier[0];
+        while (2 * j + 1 < n) {
+            int c = 2 * j + 1;
+            if (c + 1 < n && compare(heap.get(frontier[c + 1]), heap.get(frontier[c])) < 0) c++;
+            if (compare(heap.get(index), heap.get(frontier[c])) <= 0) break;
+            frontier[j] = frontier[c];
+            j = c;
+        }
+        frontier[j] = index;
+    }
+
+    // Sinks the entry at j to a leaf along the smaller children, then lets it climb back up.
+    // Entries from the end of the heap are large, so the climb is usually short.
+    private void sinkHole(int j) {
+        int c;
+        while ((c = smallestChild(j)) >= 0) {
+            swap(j, c);
+            j = c;
+        }
+        upHeap(j);
+    }
+
+    // Moves up to max smallest entries into c, smallest first, and returns how many moved
+    public int drainTo(Collection<? super Entry<K, V>> c, int max) {
+        List<Entry<K, V>> batch = removeMin(max);
+        c.addAll(batch);
+        return batch.size();
+    }
+}
+
+class HeapPriorityQueue<K, V> extends ArrayHeapPriorityQueue<K, V> {
+
     public HeapPriorityQueue() {
         super();
     }
@@ -120,10 +382,14 @@ class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
     }
 
     public HeapPriorityQueue(K[] keys, V[] values) {
-        super();
+        this(new DefaultComparator<K>(), keys, values);
+    }
+
+    public HeapPriorityQueue(Comparator<K> comp, K[] keys, V[] values) {
+        super(comp);
         for (int j = 0; j < Math.min(keys.length, values.length); j++)
             heap.add(new PQEntry<>(keys[j], values[j]));
-        heapify();
+        buildHeap(heap, 2, comp);
     }
 
     protected int parent(int j) {
@@ -138,6 +404,10 @@ class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
         return 2 * j + 2;
     }
 
+    protected int firstChild(int j) { return left(j); }
+
+    protected int arity() { return 2; }
+
     protected boolean hasLeft(int j) {
         return left(j) < heap.size();
     }
@@ -146,22 +416,6 @@ class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
         return right(j) < heap.size();
     }
 
-    protected void swap(int i, int j) {
-        Entry<K, V> temp = heap.get(i);
-        heap.set(i, heap.get(j));
-        heap.set(j, temp);
-    }
-
-    protected void upHeap(int j) {
-        while (j > 0) { // continue until reaching root (or break statement)
-            int p = parent(j);
-            if (compare(heap.get(j), heap.get(p)) >= 0)
-                break; // heap property verified
-            swap(j, p);
-            j = p; // continue from the parent's location
-        }
-    }
-
     protected void downHeap(int j) {
         while (hasLeft(j)) {
             int leftIndex = left(j);
@@ -198,41 +452,6 @@ class HeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V> {
         downheap(j);
     }
 
-    protected void heapify() {
-        int startIndex = parent(size() - 1); // start at PARENT of last entry
-        for (int j = startIndex; j >= 0; j--) // loop until processing the root
-            downHeap(j);
-    }
-
-    public int size() {
-        return heap.size();
-    }
-
-    public Entry<K, V> min() {
-        if (heap.isEmpty())
-            return null;
-        return heap.get(0);
-    }
-
-    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
-        checkKey(key); // auxiliary key-checking method (could throw exception)
-        Entry<K, V> newest = new PQEntry<>(key, value);
-
-        heap.add(newest); // add to the end of the list
-        upHeap(heap.size() - 1); // upheap newly added entry
-        return newest;
-    }
-
-    public Entry<K, V> removeMin() {
-        if (heap.isEmpty())
-            return null;
-        Entry<K, V> answer = heap.get(0);
-        swap(0, heap.size() - 1); // put minimum item at the end
-        heap.remove(heap.size() - 1); // and remove it from the list;
-        downHeap(0); // then fix new root
-        return answer;
-    }
-
     private void sanityCheck() {
         for (int j = 0; j < heap.size(); j++) {
             int left = left(j);
@@ -0,0 +1,191 @@
+import java.util.ArrayList;
+
+// Open-addressing hash map with linear probing over flat key/value arrays, using equals and
+// hashCode. Removal shifts the following run back instead of leaving tombstones. When the
+// table passes half full it doubles, but entries move to the new table a few slots per
+// update instead of all at once, so no single put pays for a whole rehash.
+// Null keys are not supported.
+public class ProbeHashMap<K, V> extends AbstractMap<K, V>
+{
+    private static final int MAX_CAPACITY = 1 << 29;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIGRATE_STEP = 8;          // old slots moved per update while resizing
+    private static final Object TOMBSTONE = new Object();   // only ever stored in the draining table
+
+    private Object[] keys;
+    private Object[] values;
+    private int tableCount = 0;         // entries in keys/values
+
+    private Object[] oldKeys = null;    // table being drained by an incremental resize
+    private Object[] oldValues = null;
+    private int migrated = 0;           // next old slot to move
+
+    private int size = 0;
+
+    public ProbeHashMap() { this(MIN_CAPACITY); }
+
+    public ProbeHashMap(int capacity) {
+        capacity = Math.min(capacity, MAX_CAPACITY);     // 2 * capacity must not overflow
+        int cap = MIN_CAPACITY;
+        while (cap < 2 * capacity) cap <<= 1;
+        keys = new Object[cap];
+        values = new Object[cap];
+    }
+
+    public int size() { return size; }
+
+    private static int indexFor(Object key, int length) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x9E3779B9;        // spread the bits, then keep the top log2(length) of them
+        return h >>> (Integer.numberOfLeadingZeros(length) + 1);
+    }
+
+    // Slot holding key, or -(empty slot + 1) where it would go
+    private static int find(Object[] table, Object key) {
+        int mask = table.length - 1;
+        int i = indexFor(key, table.length);
+        while (true) {
+            Object k = table[i];
+            if (k == null) return -(i + 1);
+            if (k != TOMBSTONE && k.equals(key)) return i;
+            i = (i + 1) & mask;
+        }
+    }
+
+    private static void checkKey(Object key) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Key is null");
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V get(K key) {
+        checkKey(key);
+        int i = find(keys, key);
+        if (i >= 0) return (V) values[i];
+        if (oldKeys != null) {
+            i = find(oldKeys, key);
+            if (i >= 0) return (V) oldValues[i];
+        }
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V put(K key, V value) {
+        checkKey(key);
+        if (oldKeys != null) {
+            migrate(MIGRATE_STEP);
+            if (oldKeys != null) {
+                int j = find(oldKeys, key);
+                if (j >= 0) {
+                    V answer = (V) oldValues[j];
+                    oldValues[j] = value;
+                    return answer;
+                }
+            }
+        }
+        int i = find(keys, key);
+        if (i >= 0) {
+            V answer = (V) values[i];
+            values[i] = value;
+            return answer;
+        }
+        i = -(i + 1);
+        keys[i] = key;
+        values[i] = value;
+        tableCount++;
+        size++;
+        if (2 * tableCount > keys.length)
+            startResize();
+        return null;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V remove(K key) {
+        checkKey(key);
+        if (oldKeys != null) {
+            migrate(MIGRATE_STEP);
+            if (oldKeys != null) {
+                int j = find(oldKeys, key);
+                if (j >= 0) {
+                    V answer = (V) oldValues[j];
+                    oldKeys[j] = TOMBSTONE;
+                    oldValues[j] = null;
+                    size--;
+                    return answer;
+                }
+            }
+        }
+        int i = find(keys, key);
+        if (i < 0) return null;
+        V answer = (V) values[i];
+        deleteSlot(i);
+        tableCount--;
+        size--;
+        return answer;
+    }
+
+    // Empties slot i and pulls later entries of the run back so every probe path stays unbroken
+    private void deleteSlot(int i) {
+        int mask = keys.length - 1;
+        keys[i] = null;
+        values[i] = null;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            Object k = keys[j];
+            if (k == null) return;
+            int home = indexFor(k, keys.length);
+            if (((j - home) & mask) >= ((j - i) & mask)) {   // the hole is on k's probe path
+                keys[i] = k;
+                values[i] = values[j];
+                keys[j] = null;
+                values[j] = null;
+                i = j;
+            }
+        }
+    }
+
+    private void startResize() {
+        if (oldKeys != null)
+            migrate(Integer.MAX_VALUE);   // only if updates outran the migration; finish it first
+        oldKeys = keys;
+        oldValues = values;
+        migrated = 0;
+        keys = new Object[oldKeys.length * 2];
+        values = new Object[oldKeys.length * 2];
+        tableCount = 0;
+    }
+
+    // Moves up to steps old slots into the current table; the old table keeps its probe
+    // chains intact by leaving tombstones until it is dropped
+    private void migrate(int steps) {
+        int end = (int) Math.min(oldKeys.length, (long) migrated + steps);
+        for (; migrated < end; migrated++) {
+            Object k = oldKeys[migrated];
+            if (k == null || k == TOMBSTONE) continue;
+            int i = -(find(keys, k) + 1);
+            keys[i] = k;
+            values[i] = oldValues[migrated];
+            tableCount++;
+            oldKeys[migrated] = TOMBSTONE;
+            oldValues[migrated] = null;
+        }
+        if (migrated == oldKeys.length) {
+            oldKeys = null;
+            oldValues = null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> snapshot = new ArrayList<>(size);
+        for (int i = 0; i < keys.length; i++)
+            if (keys[i] != null)
+                snapshot.add(new MapEntry<>((K) keys[i], (V) values[i]));
+        if (oldKeys != null)
+            for (int i = migrated; i < oldKeys.length; i++)
+                if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+                    snapshot.add(new MapEntry<>((K) oldKeys[i], (V) oldValues[i]));
+        return snapshot;
+    }
+}
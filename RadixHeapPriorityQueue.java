@@ -0,0 +1,152 @@
+import java.util.Arrays;
+
+// Monotone priority queue for non-negative long keys, for workloads such as Dijkstra or event
+// simulation where no key is ever smaller than the last minimum removed. Entries sit in 65
+// buckets by the highest bit in which their key differs from that minimum (bucket 0 holds
+// keys equal to it). removeMin pops bucket 0; when it is empty, the first non-empty bucket is
+// scanned for its smallest key, which becomes the new minimum, and its entries move to lower
+// buckets. An entry moves down at most 64 times, so operations cost amortized O(log C) for a
+// key range C with no compares outside those scans. Smaller keys are rejected on insert.
+public class RadixHeapPriorityQueue<V> implements PriorityQueue<Long, V>
+{
+    private static final int BUCKETS = 65;
+
+    private final long[][] keys = new long[BUCKETS][];
+    private final Object[][] values = new Object[BUCKETS][];
+    private final int[] counts = new int[BUCKETS];
+    private long last = 0;      // the last minimum removed; every key is >= last
+    private int size = 0;
+    private int scannedBucket = -1, scannedSlot;     // result of the last minSlot scan, until a change
+
+    public int size() { return size; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // The smallest key that may still be inserted
+    public long lastMinKey() { return last; }
+
+    private int bucket(long key) { return 64 - Long.numberOfLeadingZeros(key ^ last); }
+
+    private void add(int b, long key, Object value) {
+        int n = counts[b];
+        if (keys[b] == null) {
+            keys[b] = new long[8];
+            values[b] = new Object[8];
+        }
+        else if (n == keys[b].length) {
+            keys[b] = Arrays.copyOf(keys[b], 2 * n);
+            values[b] = Arrays.copyOf(values[b], 2 * n);
+        }
+        keys[b][n] = key;
+        values[b][n] = value;
+        counts[b] = n + 1;
+    }
+
+    // Primitive API: no boxing and no Entry objects
+    public void offer(long key, V value) throws IllegalArgumentException {
+        if (key < 0) throw new IllegalArgumentException("Negative key " + key);
+        if (key < last)
+            throw new IllegalArgumentException("Key " + key + " is below the last removed minimum " + last);
+        add(bucket(key), key, value);
+        scannedBucket = -1;
+        size++;
+    }
+
+    private int firstBucket() {
+        int b = 0;
+        while (counts[b] == 0) b++;
+        return b;
+    }
+
+    // Slot of the smallest key in bucket b. Of equal keys it picks the last, which is the one
+    // removal pops: redistribute moves them into bucket 0 in slot order, and bucket 0 pops last.
+    private int minSlot(int b) {
+        if (scannedBucket != b) {
+            long[] k = keys[b];
+            int best = 0;
+            for (int i = 1; i < counts[b]; i++)
+                if (k[i] <= k[best]) best = i;
+            scannedBucket = b;
+            scannedSlot = best;
+        }
+        return scannedSlot;
+    }
+
+    public long peekMinKey() throws IllegalStateException {
+        if (size == 0) throw new IllegalStateException("Priority queue is empty");
+        int b = firstBucket();
+        return b == 0 ? last : keys[b][minSlot(b)];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V peekMinValue() {
+        if (size == 0) return null;
+        int b = firstBucket();
+        return (V) values[b][b == 0 ? counts[0] - 1 : minSlot(b)];
+    }
+
+    // Makes the smallest key the new minimum and spreads its bucket over the lower ones
+    private void redistribute() {
+        int b = firstBucket();
+        long[] k = keys[b];
+        Object[] v = values[b];
+        int n = counts[b];
+        last = k[minSlot(b)];
+        counts[b] = 0;
+        scannedBucket = -1;
+        for (int i = 0; i < n; i++) {
+            add(bucket(k[i]), k[i], v[i]);     // always below b
+            v[i] = null;
+        }
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public V removeMinValue() {
+        if (size == 0) return null;
+        if (counts[0] == 0) redistribute();
+        int n = --counts[0];
+        V answer = (V) values[0][n];
+        values[0][n] = null;
+        size--;
+        return answer;
+    }
+
+    // PriorityQueue adapter for generic callers (boxes keys and allocates entries)
+    public Entry<Long, V> insert(Long key, V value) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Incompatible key");
+        offer(key.longValue(), value);
+        return new AbstractPriorityQueue.PQEntry<>(key, value);
+    }
+
+    public Entry<Long, V> min() {
+        if (size == 0) return null;
+        return new AbstractPriorityQueue.PQEntry<>(peekMinKey(), peekMinValue());
+    }
+
+    public Entry<Long, V> removeMin() {
+        if (size == 0) return null;
+        if (counts[0] == 0) redistribute();
+        long key = last;
+        return new AbstractPriorityQueue.PQEntry<>(key, removeMinValue());
+    }
+
+    public static void main(String[] args)
+    {
+        RadixHeapPriorityQueue<String> events = new RadixHeapPriorityQueue<>();
+        events.offer(30, "timeout");
+        events.offer(5, "arrival");
+        events.offer(12, "service");
+        while (!events.isEmpty()) {
+            long time = events.peekMinKey();
+            String event = events.removeMinValue();
+            System.out.println(time + " " + event);
+            if (event.equals("arrival")) events.offer(time + 20, "departure");
+        }
+        try {
+            events.offer(events.lastMinKey() - 1, "too late");
+        }
+        catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,239 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Comparator;
+import java.util.zip.CRC32;
+
+// Compact binary snapshots of heaps and maps. Layout:
+//     magic, version, kind, key width, value width, count    (24-byte header)
+//     count fixed-width (key, value) records
+//     CRC32 of the records
+// Keys and values go through the caller's Codecs straight into a reused direct buffer that
+// is handed to the channel, so nothing is copied in between. Heaps are written in array
+// order, which is already heap order, so restoring only appends entries; the order is
+// checked with one compare per entry (the comparator could differ from the writer's) but
+// never rebuilt. UnsortedPositionalMap snapshots keep the list order.
+public class Snapshots
+{
+    private static final int MAGIC = 0x534E4150;    // "SNAP"
+    private static final byte VERSION = 1;
+    private static final byte BINARY_HEAP = 1, TERNARY_HEAP = 2, POSITIONAL_MAP = 3;
+    private static final int HEADER = 24;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private Snapshots() { }
+
+    //-----------------------WRITING----------------------
+
+    // Encodes records into one direct buffer, writing it out whenever the next record won't fit
+    private static class Writer<K, V> {
+        final WritableByteChannel out;
+        final Codec<K> keys;
+        final Codec<V> values;
+        final ByteBuffer buffer;
+        final CRC32 crc = new CRC32();
+
+        Writer(WritableByteChannel out, Codec<K> keys, Codec<V> values, byte kind, int count) throws IOException {
+            this.out = out;
+            this.keys = keys;
+            this.values = values;
+            int record = keys.width() + values.width();
+            buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, HEADER + record)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).put(VERSION).put(kind).putShort((short) 0)
+                  .putInt(keys.width()).putInt(values.width()).putLong(count);
+            flush(false);
+        }
+
+        void add(K key, V value) throws IOException {
+            if (buffer.remaining() < keys.width() + values.width()) flush(true);
+            int at = buffer.position();
+            keys.write(buffer, at, key);
+            values.write(buffer, at + keys.width(), value);
+            buffer.position(at + keys.width() + values.width());
+        }
+
+        private void flush(boolean checksum) throws IOException {
+            buffer.flip();
+            if (checksum) crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) out.write(buffer);
+            buffer.clear();
+        }
+
+        void finish() throws IOException {
+            flush(true);
+            buffer.putInt((int) crc.getValue());
+            flush(false);
+        }
+    }
+
+    public static <K, V> void write(HeapPriorityQueue<K, V> pq, Codec<K> keys, Codec<V> values,
+                                    WritableByteChannel out) throws IOException {
+        Writer<K, V> w = new Writer<>(out, keys, values, BINARY_HEAP, pq.heap.size());
+        for (Entry<K, V> e : pq.heap) w.add(e.getKey(), e.getValue());
+        w.finish();
+    }
+
+    public static <K, V> void write(TernaryHeapPriorityQueue<K, V> pq, Codec<K> keys, Codec<V> values,
+                                    WritableByteChannel out) throws IOException {
+        Writer<K, V> w = new Writer<>(out, keys, values, TERNARY_HEAP, pq.heap.size());
+        for (Entry<K, V> e : pq.heap) w.add(e.getKey(), e.getValue());
+        w.finish();
+    }
+
+    public static <K, V> void write(UnsortedPositionalMap<K, V> map, Codec<K> keys, Codec<V> values,
+                                    WritableByteChannel out) throws IOException {
+        Writer<K, V> w = new Writer<>(out, keys, values, POSITIONAL_MAP, map.size());
+        for (Entry<K, V> e : map.lpl) w.add(e.getKey(), e.getValue());
+        w.finish();
+    }
+
+    //-----------------------READING----------------------
+
+    private static class Reader<K, V> {
+        final ReadableByteChannel in;
+        final Codec<K> keys;
+        final Codec<V> values;
+        final ByteBuffer buffer;
+        final CRC32 crc = new CRC32();
+        final int count;
+        int read = 0;
+        int crcFrom = -1;       // start of the records in the buffer not yet checksummed
+        long unread = HEADER;   // snapshot bytes still in the channel; nothing past the end is read
+        K key;
+        V value;
+
+        Reader(ReadableByteChannel in, Codec<K> keys, Codec<V> values, byte kind) throws IOException {
+            this.in = in;
+            this.keys = keys;
+            this.values = values;
+            int record = keys.width() + values.width();
+            buffer = ByteBuffer.allocateDirect(Math.max(BUFFER_BYTES, HEADER + record)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);
+            require(HEADER);
+            if (buffer.getInt() != MAGIC || buffer.get() != VERSION) throw new IOException("Not a snapshot");
+            if (buffer.get() != kind) throw new IOException("Snapshot holds a different structure");
+            buffer.getShort();
+            if (buffer.getInt() != keys.width() || buffer.getInt() != values.width())
+                throw new IOException("Snapshot was written with different codec widths");
+            long n = buffer.getLong();
+            if (n < 0 || n > Integer.MAX_VALUE) throw new IOException("Bad entry count");
+            count = (int) n;
+            unread = n * record + 4;
+            crcFrom = buffer.position();
+        }
+
+        private void checksumConsumed() {
+            if (crcFrom < 0) return;
+            ByteBuffer consumed = buffer.duplicate();
+            consumed.limit(buffer.position()).position(crcFrom);
+            crc.update(consumed);
+            crcFrom = 0;
+        }
+
+        // Makes sure at least n unread bytes are in the buffer
+        private void require(int n) throws IOException {
+            if (buffer.remaining() >= n) return;
+            checksumConsumed();
+            buffer.compact();
+            while (buffer.position() < n) {
+                buffer.limit((int) Math.min(buffer.capacity(), buffer.position() + unread));
+                int got = in.read(buffer);
+                if (got < 0) throw new IOException("Snapshot is truncated");
+                unread -= got;
+            }
+            buffer.flip();
+        }
+
+        // Loads the next record into key and value; false after the last one
+        boolean next() throws IOException {
+            if (read == count) {
+                checkTrailer();
+                return false;
+            }
+            int record = keys.width() + values.width();
+            require(record);
+            int at = buffer.position();
+            key = keys.read(buffer, at);
+            value = values.read(buffer, at + keys.width());
+            buffer.position(at + record);
+            read++;
+            return true;
+        }
+
+        private void checkTrailer() throws IOException {
+            checksumConsumed();
+            crcFrom = -1;
+            require(4);
+            if (buffer.getInt() != (int) crc.getValue()) throw new IOException("Snapshot checksum mismatch");
+        }
+    }
+
+    public static <K, V> HeapPriorityQueue<K, V> readHeap(ReadableByteChannel in, Codec<K> keys, Codec<V> values,
+                                                          Comparator<K> comp) throws IOException {
+        Reader<K, V> r = new Reader<>(in, keys, values, BINARY_HEAP);
+        HeapPriorityQueue<K, V> pq = new HeapPriorityQueue<>(comp);
+        pq.heap.ensureCapacity(r.count);
+        while (r.next()) {
+            int j = pq.heap.size();
+            pq.heap.add(pq.createEntry(r.key, r.value));
+            if (j > 0 && pq.compareKeys(r.key, pq.heap.get((j - 1) / 2).getKey()) < 0)
+                throw new IOException("Snapshot is not in heap order for this comparator");
+        }
+        return pq;
+    }
+
+    public static <K, V> HeapPriorityQueue<K, V> readHeap(ReadableByteChannel in, Codec<K> keys, Codec<V> values)
+        throws IOException {
+        return readHeap(in, keys, values, new DefaultComparator<K>());
+    }
+
+    public static <K, V> TernaryHeapPriorityQueue<K, V> readTernaryHeap(ReadableByteChannel in, Codec<K> keys,
+                                                                        Codec<V> values, Comparator<K> comp)
+        throws IOException {
+        Reader<K, V> r = new Reader<>(in, keys, values, TERNARY_HEAP);
+        TernaryHeapPriorityQueue<K, V> pq = new TernaryHeapPriorityQueue<>(comp);
+        pq.heap.ensureCapacity(r.count);
+        while (r.next()) {
+            int j = pq.heap.size();
+            pq.heap.add(new AbstractPriorityQueue.PQEntry<>(r.key, r.value));
+            if (j > 0 && pq.compareKeys(r.key, pq.heap.get(pq.parent(j)).getKey()) < 0)
+                throw new IOException("Snapshot is not in heap order for this comparator");
+        }
+        return pq;
+    }
+
+    public static <K, V> TernaryHeapPriorityQueue<K, V> readTernaryHeap(ReadableByteChannel in, Codec<K> keys,
+                                                                        Codec<V> values) throws IOException {
+        return readTernaryHeap(in, keys, values, new DefaultComparator<K>());
+    }
+
+    // Appends straight to the list; keys are trusted to be distinct, as they were when written
+    public static <K, V> UnsortedPositionalMap<K, V> readUnsortedMap(ReadableByteChannel in, Codec<K> keys,
+                                                                    Codec<V> values) throws IOException {
+        Reader<K, V> r = new Reader<>(in, keys, values, POSITIONAL_MAP);
+        UnsortedPositionalMap<K, V> map = new UnsortedPositionalMap<>();
+        while (r.next()) map.lpl.addLast(new AbstractMap.MapEntry<>(r.key, r.value));
+        return map;
+    }
+
+    public static void main(String[] args) throws IOException
+    {
+        HeapPriorityQueue<Integer, String> pq = new HeapPriorityQueue<>();
+        for (int i = 10; i > 0; i--) pq.insert(i, "job" + i);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        write(pq, Codec.INT, Codec.string(8), Channels.newChannel(bytes));
+        System.out.println(pq.size() + " entries in " + bytes.size() + " bytes");
+
+        HeapPriorityQueue<Integer, String> copy = readHeap(
+            Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())),
+            Codec.INT, Codec.string(8));
+        while (!copy.isEmpty()) System.out.print(copy.removeMin().getValue() + " ");
+        System.out.println();
+    }
+}
@@ -0,0 +1,145 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Padding around the two ring indices so the consumer's writes to head and the producers'
+// writes to tail never share a cache line (128 bytes, to cover adjacent-line prefetch).
+// A superclass's fields are laid out before its subclass's, so the chain keeps each
+// group between its own pads.
+abstract class RingPadHead {
+    long p00, p01, p02, p03, p04, p05, p06, p07, p08, p09, p0a, p0b, p0c, p0d, p0e, p0f;
+}
+
+abstract class RingHead extends RingPadHead {
+    volatile long head;         // next slot to take, written by the consumer only
+    long tailCache;             // the consumer's last look at tail
+}
+
+abstract class RingPadTail extends RingHead {
+    long p10, p11, p12, p13, p14, p15, p16, p17, p18, p19, p1a, p1b, p1c, p1d, p1e, p1f;
+}
+
+abstract class RingTail extends RingPadTail {
+    volatile long tail;         // next slot to fill
+    volatile long headCache;    // the producers' last look at head; never ahead of it
+}
+
+abstract class RingPadEnd extends RingTail {
+    long p20, p21, p22, p23, p24, p25, p26, p27, p28, p29, p2a, p2b, p2c, p2d, p2e, p2f;
+}
+
+// Bounded lock-free ring of a power-of-two number of slots. head and tail count slots
+// taken and filled since the start and never wrap. Null elements are rejected, since an
+// empty slot is null. enqueue throws when the queue is full; offer reports it instead.
+abstract class ConcurrentRingQueue<E> extends RingPadEnd implements Queue<E>
+{
+    static final VarHandle HEAD, TAIL, SLOT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            HEAD = lookup.findVarHandle(RingHead.class, "head", long.class);
+            TAIL = lookup.findVarHandle(RingTail.class, "tail", long.class);
+        }
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+        SLOT = MethodHandles.arrayElementVarHandle(Object[].class);
+    }
+
+    final Object[] buffer;
+    final int mask;
+
+    ConcurrentRingQueue(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Bad capacity " + capacity);
+        buffer = new Object[capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1];
+        mask = buffer.length - 1;
+    }
+
+    public int capacity() { return buffer.length; }
+
+    // A snapshot; exact only when neither side is running
+    public int size() {
+        long h = head;
+        long t = tail;
+        return (int) Math.max(0, Math.min(buffer.length, t - h));
+    }
+
+    public boolean isEmpty() { return size() == 0; }
+
+    public abstract boolean offer(E e) throws IllegalArgumentException;
+
+    public void enqueue(E e) throws IllegalArgumentException, IllegalStateException {
+        if (!offer(e)) throw new IllegalStateException("Queue is full");
+    }
+
+    static void checkElement(Object e) throws IllegalArgumentException {
+        if (e == null) throw new IllegalArgumentException("Null element");
+    }
+}
+
+// Single-producer single-consumer queue: one thread may call offer/enqueue and one other
+// thread dequeue/first. Each side keeps a cached copy of the other's index and reads the
+// real one only when the cache says the ring looks full (or empty), so in steady state a
+// transfer costs one plain slot write, one plain read and two release stores.
+public class SpscArrayQueue<E> extends ConcurrentRingQueue<E>
+{
+    public SpscArrayQueue(int capacity) { super(capacity); }
+
+    public boolean offer(E e) throws IllegalArgumentException {
+        checkElement(e);
+        long t = (long) TAIL.getOpaque(this);
+        if (t - headCache >= buffer.length) {
+            headCache = (long) HEAD.getAcquire(this);
+            if (t - headCache >= buffer.length) return false;
+        }
+        buffer[(int) t & mask] = e;
+        TAIL.setRelease(this, t + 1);          // publishes the slot
+        return true;
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public E first() {
+        long h = (long) HEAD.getOpaque(this);
+        if (h >= tailCache) {
+            tailCache = (long) TAIL.getAcquire(this);
+            if (h >= tailCache) return null;
+        }
+        return (E) buffer[(int) h & mask];
+    }
+
+    @SuppressWarnings({"unchecked"})
+    public E dequeue() {
+        long h = (long) HEAD.getOpaque(this);
+        if (h >= tailCache) {
+            tailCache = (long) TAIL.getAcquire(this);
+            if (h >= tailCache) return null;
+        }
+        int slot = (int) h & mask;
+        E answer = (E) buffer[slot];
+        buffer[slot] = null;
+        HEAD.setRelease(this, h + 1);          // hands the slot back to the producer
+        return answer;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        SpscArrayQueue<Integer> queue = new SpscArrayQueue<>(1024);
+        int n = 1_000_000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i++)
+                while (!queue.offer(i)) Thread.yield();
+        });
+        producer.start();
+        long sum = 0;
+        for (int received = 0; received < n; ) {
+            Integer x = queue.dequeue();
+            if (x == null) Thread.yield();
+            else {
+                sum += x;
+                received++;
+            }
+        }
+        producer.join();
+        System.out.println("received " + n + ", sum " + sum);
+    }
+}
@@ -0,0 +1,261 @@
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Thread-safe hash map split into segments, each a chained hash table behind its own lock.
+// Writers lock only the segment their key hashes to; readers never lock. Chain nodes have
+// final key and next fields and a volatile value, and a bin is replaced with a single
+// volatile write, so a reader walking a chain always sees a consistent list. Removal copies
+// the nodes in front of the removed one instead of unlinking in place, and a segment resizes
+// on its own by building a new table and publishing it, while readers keep using the old one.
+// Null keys and values are not supported; get returns null only for a missing key.
+public class StripedConcurrentMap<K, V> extends AbstractMap<K, V>
+{
+    private static final int MIN_SEGMENT_CAPACITY = 4;
+
+    private static final class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        final Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class Segment<K, V> {
+        final ReentrantLock lock = new ReentrantLock();
+        volatile AtomicReferenceArray<Node<K, V>> table;
+        volatile int count;
+
+        Segment(int capacity) { table = new AtomicReferenceArray<>(capacity); }
+
+        Node<K, V> find(int hash, Object key) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            for (Node<K, V> e = tab.get(hash & (tab.length() - 1)); e != null; e = e.next)
+                if (e.hash == hash && e.key.equals(key)) return e;
+            return null;
+        }
+
+        // Caller holds the lock and has checked the key is absent
+        void add(int hash, K key, V value) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            if (count + 1 > tab.length() * 3 / 4)
+                tab = resize(tab);
+            int i = hash & (tab.length() - 1);
+            tab.set(i, new Node<>(hash, key, value, tab.get(i)));
+            count++;
+        }
+
+        // Caller holds the lock; e must be in its bin
+        void unlink(Node<K, V> e) {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int i = e.hash & (tab.length() - 1);
+            Node<K, V> first = tab.get(i);
+            Node<K, V> rest = e.next;
+            for (Node<K, V> p = first; p != e; p = p.next)
+                rest = new Node<>(p.hash, p.key, p.value, rest);
+            tab.set(i, rest);
+            count--;
+        }
+
+        // Copies every chain into a table twice as large; the old table stays valid for readers
+        private AtomicReferenceArray<Node<K, V>> resize(AtomicReferenceArray<Node<K, V>> old) {
+            AtomicReferenceArray<Node<K, V>> tab = new AtomicReferenceArray<>(old.length() * 2);
+            int mask = tab.length() - 1;
+            for (int i = 0; i < old.length(); i++)
+                for (Node<K, V> e = old.get(i); e != null; e = e.next) {
+                    int j = e.hash & mask;
+                    tab.set(j, new Node<>(e.hash, e.key, e.value, tab.get(j)));
+                }
+            table = tab;
+            return tab;
+        }
+    }
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+
+    public StripedConcurrentMap() { this(16, 2 * Runtime.getRuntime().availableProcessors()); }
+
+    // concurrency is rounded up to a power of two segments
+    @SuppressWarnings({"unchecked"})
+    public StripedConcurrentMap(int capacity, int concurrency) {
+        if (capacity < 0 || concurrency < 1) throw new IllegalArgumentException("Invalid capacity or concurrency");
+        int count = concurrency == 1 ? 1 : Integer.highestOneBit(concurrency - 1) << 1;
+        count = Math.min(count, 1 << 16);
+        segmentShift = 32 - Integer.numberOfTrailingZeros(count);
+        int perSegment = MIN_SEGMENT_CAPACITY;
+        while (perSegment * 3 / 4 < capacity / count) perSegment <<= 1;
+        segments = (Segment<K, V>[]) new Segment<?, ?>[count];
+        for (int i = 0; i < count; i++)
+            segments[i] = new Segment<>(perSegment);
+    }
+
+    // The top bits choose the segment, the low bits the bin within it
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private Segment<K, V> segmentFor(int hash) {
+        return segmentShift == 32 ? segments[0] : segments[hash >>> segmentShift];
+    }
+
+    private static void checkKey(Object key) throws IllegalArgumentException {
+        if (key == null) throw new IllegalArgumentException("Key is null");
+    }
+
+    private static void checkValue(Object value) throws IllegalArgumentException {
+        if (value == null) throw new IllegalArgumentException("Value is null");
+    }
+
+    // Sum of the segment counts; exact only when no writer is running
+    public int size() {
+        long sum = 0;
+        for (Segment<K, V> s : segments) sum += s.count;
+        return (int) Math.min(sum, Integer.MAX_VALUE);
+    }
+
+    public V get(K key) {
+        checkKey(key);
+        int hash = hash(key);
+        Node<K, V> e = segmentFor(hash).find(hash, key);
+        return e == null ? null : e.value;
+    }
+
+    public V put(K key, V value) {
+        checkKey(key);
+        checkValue(value);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        s.lock.lock();
+        try {
+            Node<K, V> e = s.find(hash, key);
+            if (e != null) {
+                V old = e.value;
+                e.value = value;
+                return old;
+            }
+            s.add(hash, key, value);
+            return null;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    // Returns the current value, leaving it in place, or null after inserting value
+    public V putIfAbsent(K key, V value) {
+        checkKey(key);
+        checkValue(value);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        Node<K, V> e = s.find(hash, key);
+        if (e != null) return e.value;
+        s.lock.lock();
+        try {
+            e = s.find(hash, key);
+            if (e != null) return e.value;
+            s.add(hash, key, value);
+            return null;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    // The function runs at most once per absent key, under the segment lock; it must not
+    // touch this map. A null result leaves the key absent.
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mapping) {
+        checkKey(key);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        Node<K, V> e = s.find(hash, key);
+        if (e != null) return e.value;
+        s.lock.lock();
+        try {
+            e = s.find(hash, key);
+            if (e != null) return e.value;
+            V value = mapping.apply(key);
+            if (value != null) s.add(hash, key, value);
+            return value;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    // Stores value if key is absent, otherwise the function of the old value and value;
+    // a null result removes the key. Runs under the segment lock.
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remapping) {
+        checkKey(key);
+        checkValue(value);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        s.lock.lock();
+        try {
+            Node<K, V> e = s.find(hash, key);
+            if (e == null) {
+                s.add(hash, key, value);
+                return value;
+            }
+            V merged = remapping.apply(e.value, value);
+            if (merged == null) s.unlink(e);
+            else e.value = merged;
+            return merged;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    public V remove(K key) {
+        checkKey(key);
+        int hash = hash(key);
+        Segment<K, V> s = segmentFor(hash);
+        if (s.find(hash, key) == null) return null;
+        s.lock.lock();
+        try {
+            Node<K, V> e = s.find(hash, key);
+            if (e == null) return null;
+            s.unlink(e);
+            return e.value;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    // Weakly consistent snapshot: each segment is read without locking
+    public Iterable<Entry<K, V>> entrySet() {
+        ArrayList<Entry<K, V>> snapshot = new ArrayList<>();
+        for (Segment<K, V> s : segments) {
+            AtomicReferenceArray<Node<K, V>> tab = s.table;
+            for (int i = 0; i < tab.length(); i++)
+                for (Node<K, V> e = tab.get(i); e != null; e = e.next)
+                    snapshot.add(new MapEntry<>(e.key, e.value));
+        }
+        return snapshot;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        StripedConcurrentMap<String, Integer> counts = new StripedConcurrentMap<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++)
+                    counts.merge("k" + (i % 10), 1, Integer::sum);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+        for (Entry<String, Integer> e : counts.entrySet())
+            System.out.print(e + " ");     // every key counted 40000 times
+        System.out.println();
+    }
+}
@@ -1,19 +1,20 @@
-import java.util.ArrayList;
 import java.util.Comparator;
 
-public class TernaryHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
+public class TernaryHeapPriorityQueue<K, V> extends ArrayHeapPriorityQueue<K, V>
 {
-    protected ArrayList<Entry<K, V>> heap = new ArrayList<>();
-
     public TernaryHeapPriorityQueue() { super(); }
 
     public TernaryHeapPriorityQueue(Comparator<K> comp) { super(comp); }
 
     public TernaryHeapPriorityQueue(K[] keys, V[] values) {
-        super();
+        this(new DefaultComparator<K>(), keys, values);
+    }
+
+    public TernaryHeapPriorityQueue(Comparator<K> comp, K[] keys, V[] values) {
+        super(comp);
         for (int j = 0; j < Math.min(keys.length, values.length); j++)
             heap.add(new AbstractPriorityQueue.PQEntry<>(keys[j], values[j]));
-        heapify();
+        buildHeap(heap, 3, comp);
     }
 
     protected int parent(int j) { return (j - 1) / 3; }
@@ -22,26 +23,14 @@ public class TernaryHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
     protected int mid(int j) { return 3 * j + 2; }
     protected int right(int j) { return 3 * j + 3; }
 
+    protected int firstChild(int j) { return left(j); }
+
+    protected int arity() { return 3; }
+
     protected boolean hasLeft(int j) { return left(j) < heap.size(); }
     protected boolean hasMid (int j) { return mid(j) < heap.size(); }
     protected boolean hasRight(int j) { return right(j) < heap.size(); }
 
-    protected void swap(int i, int j)
-    {
-        Entry<K, V> temp = heap.get(i);
-        heap.set(i, heap.get(j));
-        heap.set(j, temp);
-    }
-
-    protected void upHeap(int j) {
-        while (j > 0) {
-            int p = parent(j);
-            if (compare(heap.get(j), heap.get(p)) >= 0) break;
-            swap(j, p);
-            j = p;
-        }
-    }
-
     protected void downHeap(int j)
     {
         while (hasLeft(j))
@@ -50,12 +39,12 @@ public class TernaryHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
             int smallChildIndex = leftIndex;
             if (hasMid(j)) {
                 int midIndex = mid(j);
-                if (compare(heap.get(leftIndex), heap.get(midIndex)) > 0)
+                if (compare(heap.get(smallChildIndex), heap.get(midIndex)) > 0)
                     smallChildIndex = midIndex;
             }
             if (hasRight(j)) {
                 int rightIndex = right(j);
-                if (compare(heap.get(leftIndex), heap.get(rightIndex)) > 0)
+                if (compare(heap.get(smallChildIndex), heap.get(rightIndex)) > 0)
                     smallChildIndex = rightIndex;
             }
             if (compare(heap.get(smallChildIndex), heap.get(j)) >= 0) break;
@@ -74,12 +63,12 @@ public class TernaryHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
 
         if (hasMid(j)) {
             int midIndex = mid(j);
-            if (compare(heap.get(leftIndex), heap.get(midIndex)) > 0)
+            if (compare(heap.get(small), heap.get(midIndex)) > 0)
                 small = midIndex;
         }
         if (hasRight(j)) {
             int rightIndex = right(j);
-            if (compare(heap.get(leftIndex), heap.get(rightIndex)) > 0)
+            if (compare(heap.get(small), heap.get(rightIndex)) > 0)
                 small = rightIndex;
         }
 
@@ -90,39 +79,6 @@ public class TernaryHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
         downheap(j);
     }
 
-    protected void heapify() {
-        int startIndex = parent(size() - 1);
-        for (int j = startIndex; j >= 0; j--)
-            downHeap(j);
-    }
-
-    public int size() { return heap.size(); }
-
-    public Entry<K, V> min() {
-        if (heap.isEmpty()) return null;
-        return heap.get(0);
-    }
-
-    public Entry<K, V> insert(K key, V value) throws IllegalArgumentException {
-        checkKey(key);
-        Entry<K, V> newest = new AbstractPriorityQueue.PQEntry<>(key, value);
-
-        heap.add(newest);
-        upHeap(heap.size() - 1);
-        return newest;
-    }
-
-    public Entry<K, V> removeMin()
-    {
-        if (heap.isEmpty()) return null;
-
-        Entry<K, V> answer = heap.get(0);
-        swap(0, heap.size() - 1);
-        heap.remove(heap.size() - 1);
-        downHeap(0);
-        return answer;
-    }
-
     private void sanityCheck() {
         for (int j = 0; j < heap.size(); j++) {
             int left = left(j);
@@ -134,60 +90,11 @@ public class TernaryHeapPriorityQueue<K, V> extends AbstractPriorityQueue<K, V>
         }
     }
 
-    public static void differences(long bin, long tern)
+    public static void main(String[] args) throws InterruptedException
     {
-        long diff = (bin - tern)/1_000_000;
-
-        System.out.println("Binary building time: " + bin);
-        System.out.println("Ternary building time: " + tern);
-        System.out.println("Difference: " + diff +"ms");
-    }
-
-    public static void main(String[] args)
-    {
-        Integer[] keys = new Integer[1_000_000];
-
-        for(int i = 0; i < 1_000_000; i++)
-        {
-            keys[i] = i % 1000;
-        }
-
-        long startTime, finishTime;
-
-        //-----------------------FILL----------------------
-
-        startTime = System.nanoTime();
-
-        HeapPriorityQueue<Integer, Integer> hpq =
-            new HeapPriorityQueue<>(keys, keys);
-
-        finishTime = System.nanoTime();
-
-        long binaryTime = finishTime - startTime;
-
-        startTime = System.nanoTime();
-
-        TernaryHeapPriorityQueue<Integer, Integer> thpq =
-            new TernaryHeapPriorityQueue<>(keys, keys);
-
-        finishTime = System.nanoTime();
-
-        differences(binaryTime, finishTime - startTime);
-
-        //-----------------------KILL----------------------
-
-        startTime = System.nanoTime();
-        while(!hpq.isEmpty()) hpq.removeMin();
-        finishTime = System.nanoTime();
-
-        binaryTime = finishTime - startTime;
-
-        startTime = System.nanoTime();
-        while(!thpq.isEmpty()) thpq.removeMin();
-        finishTime = System.nanoTime();
-
-        differences(binaryTime, finishTime - startTime);
-
-        // Ternary heap is a bit faster to build and approximately twice faster to empty
+        // Build and drain both array heaps with the old i % 1000 keys
+        Benchmark.main(new String[] {
+            "^(Ternary)?HeapPriorityQueue\\.(heapify|removeMin)$", "1000000", "duplicates", "default"
+        });
     }
 }
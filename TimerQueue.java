@@ -0,0 +1,191 @@
+// Timeout scheduler: deadlines within one wheel rotation go into a hashed timing wheel
+// (O(1) schedule and cancel), later ones wait in a LongKeyHeapPriorityQueue keyed by the
+// deadline in nanos and are promoted into the wheel as time advances. Timeouts never fire
+// early; they fire on the first expire() call at or after the tick that covers their deadline.
+// Not thread-safe: schedule, cancel and expire are meant to be driven by one thread.
+public class TimerQueue
+{
+    public interface Clock {
+        long nanoTime();
+    }
+
+    public static final Clock SYSTEM_CLOCK = System::nanoTime;
+
+    // Clock that only moves when told to, for deterministic tests and benchmarks
+    public static class ManualClock implements Clock {
+        private long now;
+        public ManualClock(long start) { now = start; }
+        public long nanoTime() { return now; }
+        public void advance(long nanos) { now += nanos; }
+    }
+
+    private static final int PENDING = 0, FIRED = 1, CANCELLED = 2;
+
+    public static final class Timeout {
+        private final TimerQueue owner;
+        private final long deadline;
+        private final Runnable task;
+        private long tick;
+        private int state = PENDING;
+        private boolean inWheel;
+        private Timeout prev, next;
+
+        private Timeout(TimerQueue owner, long deadline, Runnable task) {
+            this.owner = owner;
+            this.deadline = deadline;
+            this.task = task;
+        }
+
+        public long deadline() { return deadline; }
+        public boolean isPending() { return state == PENDING; }
+        public boolean isFired() { return state == FIRED; }
+        public boolean isCancelled() { return state == CANCELLED; }
+    }
+
+    private final Clock clock;
+    private final long origin;
+    private final long tickNanos;
+    private final int mask;
+    private final Timeout[] heads;
+    private final Timeout[] tails;
+    private final LongKeyHeapPriorityQueue<Timeout> overflow = new LongKeyHeapPriorityQueue<>();
+
+    private long currentTick = 0;   // next tick expire() will process
+    private int inWheel = 0;
+    private int cancelledInOverflow = 0;
+    private int pending = 0;
+
+    public TimerQueue() { this(SYSTEM_CLOCK, 1_000_000, 512); }
+
+    // wheelSize is rounded up to a power of two; the wheel covers wheelSize * tickNanos
+    public TimerQueue(Clock clock, long tickNanos, int wheelSize) {
+        if (tickNanos < 1) throw new IllegalArgumentException("Tick must be positive");
+        if (wheelSize < 2 || wheelSize > 1 << 30) throw new IllegalArgumentException("Invalid wheel size");
+        int size = Integer.highestOneBit(wheelSize - 1) << 1;
+        this.clock = clock;
+        this.origin = clock.nanoTime();
+        this.tickNanos = tickNanos;
+        this.mask = size - 1;
+        heads = new Timeout[size];
+        tails = new Timeout[size];
+    }
+
+    public int size() { return pending; }
+
+    public boolean isEmpty() { return pending == 0; }
+
+    // First tick whose end is at or after the deadline, so nothing fires early
+    private long tickOf(long deadline) {
+        long elapsed = deadline - origin;
+        return Math.floorDiv(elapsed, tickNanos) + (Math.floorMod(elapsed, tickNanos) == 0 ? 0 : 1);
+    }
+
+    public Timeout schedule(long delayNanos, Runnable task) {
+        if (task == null) throw new IllegalArgumentException("Task is null");
+        Timeout t = new Timeout(this, clock.nanoTime() + Math.max(delayNanos, 0), task);
+        t.tick = Math.max(tickOf(t.deadline), currentTick);
+        if (t.tick - currentTick <= mask)
+            link(t);
+        else
+            overflow.offer(t.deadline, t);
+        pending++;
+        return t;
+    }
+
+    // O(1): unlinks a wheel entry, or marks an overflow entry to be skipped when it is promoted
+    public boolean cancel(Timeout t) {
+        if (t.owner != this) throw new IllegalArgumentException("Timeout belongs to another queue");
+        if (t.state != PENDING) return false;
+        t.state = CANCELLED;
+        pending--;
+        if (t.inWheel)
+            unlink(t);
+        else if (++cancelledInOverflow > 64 && cancelledInOverflow > overflow.size() / 2) {
+            overflow.removeIf(Timeout::isCancelled);
+            cancelledInOverflow = 0;
+        }
+        return true;
+    }
+
+    // Runs every timeout due by now and returns how many fired
+    public int expire() {
+        long nowTick = Math.floorDiv(clock.nanoTime() - origin, tickNanos);
+        int fired = 0;
+        while (currentTick <= nowTick) {
+            promote();
+            int bucket = (int) (currentTick & mask);
+            long tick = currentTick++;   // timeouts scheduled by tasks below land in later ticks
+            Timeout t;
+            while ((t = heads[bucket]) != null && t.tick <= tick) {
+                unlink(t);
+                t.state = FIRED;
+                pending--;
+                fired++;
+                t.task.run();
+            }
+            if (inWheel == 0)
+                skipIdleTicks(nowTick);
+        }
+        return fired;
+    }
+
+    // Moves overflow entries whose tick now falls inside the wheel into their bucket
+    private void promote() {
+        while (!overflow.isEmpty() && tickOf(overflow.peekMinKey()) - currentTick <= mask) {
+            Timeout t = overflow.removeMinValue();
+            if (t.state == CANCELLED) {
+                cancelledInOverflow--;
+                continue;
+            }
+            t.tick = Math.max(t.tick, currentTick);
+            link(t);
+        }
+    }
+
+    // With an empty wheel, jump straight to the tick where the next overflow entry would be promoted
+    private void skipIdleTicks(long nowTick) {
+        long next = nowTick + 1;
+        if (!overflow.isEmpty())
+            next = Math.min(next, tickOf(overflow.peekMinKey()) - mask);
+        currentTick = Math.max(currentTick, next);
+    }
+
+    private void link(Timeout t) {
+        int bucket = (int) (t.tick & mask);
+        t.inWheel = true;
+        t.prev = tails[bucket];
+        t.next = null;
+        if (tails[bucket] == null) heads[bucket] = t;
+        else tails[bucket].next = t;
+        tails[bucket] = t;
+        inWheel++;
+    }
+
+    private void unlink(Timeout t) {
+        int bucket = (int) (t.tick & mask);
+        if (t.prev == null) heads[bucket] = t.next;
+        else t.prev.next = t.next;
+        if (t.next == null) tails[bucket] = t.prev;
+        else t.next.prev = t.prev;
+        t.prev = t.next = null;
+        t.inWheel = false;
+        inWheel--;
+    }
+
+    public static void main(String[] args)
+    {
+        ManualClock clock = new ManualClock(0);
+        TimerQueue timers = new TimerQueue(clock, 1_000_000, 64);   // 1 ms ticks, 64 ms wheel
+
+        Timeout soon = timers.schedule(5_000_000, () -> System.out.println("5 ms"));
+        timers.schedule(20_000_000, () -> System.out.println("20 ms"));
+        timers.schedule(1_000_000_000, () -> System.out.println("1 s (promoted from the heap)"));
+        timers.cancel(soon);
+
+        for (int ms = 0; ms <= 1000; ms += 10) {
+            clock.advance(10_000_000);
+            timers.expire();
+        }
+        System.out.println(timers.size() + " pending");
+    }
+}
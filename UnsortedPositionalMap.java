@@ -1,5 +1,7 @@
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 
 interface Map<K,V>
 {
@@ -150,6 +152,19 @@ class LinkedPositionalList<E> implements PositionalList<E>
         return answer;
     }
 
+    // Relinks p at the end of the list without allocating a new position
+    public void moveToLast(Position<E> p) throws IllegalArgumentException {
+        Node<E> node = validate(p);
+        if (node.getNext() == trailer) return;
+        node.getPrev().setNext(node.getNext());
+        node.getNext().setPrev(node.getPrev());
+        Node<E> last = trailer.getPrev();
+        node.setPrev(last);
+        node.setNext(trailer);
+        last.setNext(node);
+        trailer.setPrev(node);
+    }
+
     private class PositionIterator implements Iterator<Position<E>> {
 
         private Position<E> cursor = first();
@@ -305,7 +320,7 @@ public class UnsortedPositionalMap<K,V> extends AbstractMap<K, V>
     public Position<Entry<K,V>> findKey(K key)
     {
         for (Position<Entry<K,V>> pos: lpl.positions())
-            if(pos.getElement().getKey() == key)
+            if(Objects.equals(pos.getElement().getKey(), key))
                 return pos;
         return null;
     }
@@ -323,8 +338,6 @@ public class UnsortedPositionalMap<K,V> extends AbstractMap<K, V>
             arr[i] = lhpq.removeMin().getValue();
         }
 
-        System.out.println(arr);
-        // IllegalArgumentException 👍
-        // Anyway, it's already too late
+        System.out.println(Arrays.toString(arr));
     }
 }